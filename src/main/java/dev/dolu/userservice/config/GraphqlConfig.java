@@ -0,0 +1,28 @@
+package dev.dolu.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.dolu.userservice.utils.GraphqlDocumentCache;
+import dev.dolu.userservice.utils.PersistedQueryRequestFilter;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GraphqlConfig {
+
+    // Parsed/validated document cache and persisted queries for every /graphql execution
+    @Bean
+    public GraphQlSourceBuilderCustomizer graphqlDocumentCacheCustomizer(GraphqlDocumentCache documentCache) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentCache));
+    }
+
+    // Hash-only persisted-query POSTs have no "query", which the GraphQL HTTP handler would reject
+    @Bean
+    public FilterRegistrationBean<PersistedQueryRequestFilter> persistedQueryRequestFilter(ObjectMapper objectMapper) {
+        FilterRegistrationBean<PersistedQueryRequestFilter> registration =
+                new FilterRegistrationBean<>(new PersistedQueryRequestFilter(objectMapper));
+        registration.addUrlPatterns("/graphql");
+        return registration;
+    }
+}
@@ -2,44 +2,81 @@ package dev.dolu.userservice.config;
 
 import dev.dolu.userservice.metrics.CustomMetricService;
 import dev.dolu.userservice.security.ApiKeyFilter;
+import dev.dolu.userservice.security.BcryptCostCalibrator;
 import dev.dolu.userservice.security.JwtAuthenticationFilter;
+import dev.dolu.userservice.security.UserStatusCache;
 import dev.dolu.userservice.service.CustomOAuth2UserService;
-import dev.dolu.userservice.service.CustomUserDetailsService;
 import dev.dolu.userservice.utils.JwtUtils;
 import dev.dolu.userservice.service.OAuth2LoginSuccessHandler;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestHeaderRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Autowired private JwtUtils jwtUtils;
-    @Autowired private CustomUserDetailsService customUserDetailsService;
+    @Autowired private UserStatusCache userStatusCache;
     @Autowired private CustomMetricService customMetricService;
     @Autowired private ApiKeyFilter apiKeyFilter;
     @Autowired private CustomOAuth2UserService customOAuth2UserService;
     @Autowired private OAuth2LoginSuccessHandler oAuth2LoginSuccessHandler;
 
+    /**
+     * Single password encoder for the whole service. New hashes are written as {@code {bcrypt}$2a$<cost>$...};
+     * legacy un-prefixed BCrypt hashes still verify and are flagged for upgrade, as are hashes below the
+     * target cost. The target cost is either fixed ({@code password.hashing.bcrypt.cost}) or calibrated at
+     * startup so a verify takes about {@code password.hashing.bcrypt.target-verify-ms} on this machine.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${password.hashing.bcrypt.cost:0}") int configuredCost,
+            @Value("${password.hashing.bcrypt.target-verify-ms:50}") long targetVerifyMs,
+            @Value("${password.hashing.bcrypt.min-cost:10}") int minCost,
+            @Value("${password.hashing.bcrypt.max-cost:14}") int maxCost) {
+        int cost = configuredCost > 0
+                ? configuredCost
+                : BcryptCostCalibrator.calibrate(targetVerifyMs, minCost, maxCost);
+        logger.info("Password encoder using bcrypt cost {}", cost);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2@SpringSecurity_v5_8", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
 
     @Bean
@@ -79,9 +116,9 @@ public class SecurityConfig {
                                 "/health", "/actuator/**", "/error",
                                 "/graphql", "/graphiql",
                                 "/api/users/register", "/api/users/{id}",
-                                "/api/users/login", "/api/users/batch",
-                                "/api/users/logout", "/api/users/verify",
-                                "/", "/favicon.ico",
+                                "/api/users/login", "/api/users/batch", "/api/users/batch/by-email",
+                                "/api/users/logout", "/api/users/logout-all", "/api/users/verify",
+                                "/", "/favicon.ico", "/.well-known/jwks.json",
                                 "/api/users/all", "/api/users/search",
                                 "/api/users/verify-email", "/api/users/forgot-password",
                                 "/api/users/reset-password", "/api/users/resend-verification",
@@ -93,6 +130,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
+                // A bearer the JWT filter rejected gets a 401, not the OAuth2 login redirect
+                .exceptionHandling(exceptions -> exceptions.defaultAuthenticationEntryPointFor(
+                        new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED),
+                        new RequestHeaderRequestMatcher("Authorization")))
                 .oauth2Login(oauth2 -> oauth2
                         .userInfoEndpoint(userInfo -> userInfo.userService(customOAuth2UserService))
                         .successHandler(oAuth2LoginSuccessHandler)
@@ -105,6 +146,14 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtils, customUserDetailsService, customMetricService);
+        return new JwtAuthenticationFilter(jwtUtils, userStatusCache, customMetricService);
+    }
+
+    // Runs only inside the security chain; without this Boot would also register it as a plain servlet filter
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
     }
 }
\ No newline at end of file
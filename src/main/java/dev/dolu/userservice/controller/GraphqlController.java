@@ -7,25 +7,40 @@ import dev.dolu.userservice.models.OnboardingFeature;
 import dev.dolu.userservice.models.PayoutInfo;
 import dev.dolu.userservice.models.Role;
 import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserConnection;
+import dev.dolu.userservice.models.UserCount;
+import dev.dolu.userservice.models.UserCountDimension;
 import dev.dolu.userservice.models.UserIntention;
+import dev.dolu.userservice.repository.UserAggregateRepository;
+import dev.dolu.userservice.repository.UserProjectionRepository;
 import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.UserSelectionRepository;
 import dev.dolu.userservice.service.UserService;
 import dev.dolu.userservice.service.EmailService;
+import dev.dolu.userservice.service.PasswordHashingService;
+import dev.dolu.userservice.service.UserCache;
+import dev.dolu.userservice.utils.KeysetCursor;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -38,67 +53,172 @@ public class GraphqlController {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphqlController.class);
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final PasswordHashingService passwordHashingService;
+    private final UserCache userCache;
+    private final UserProjectionRepository userProjectionRepository;
+    private final UserSelectionRepository userSelectionRepository;
+    private final UserAggregateRepository userAggregateRepository;
     private final UserService userService;
     private final EmailService emailService;
 
     @Autowired
-    public GraphqlController(UserRepository userRepository, UserService userService, EmailService emailService) {
+    public GraphqlController(UserRepository userRepository, UserService userService, EmailService emailService, PasswordHashingService passwordHashingService, UserCache userCache, UserProjectionRepository userProjectionRepository, UserSelectionRepository userSelectionRepository, UserAggregateRepository userAggregateRepository) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userProjectionRepository = userProjectionRepository;
+        this.userSelectionRepository = userSelectionRepository;
+        this.userAggregateRepository = userAggregateRepository;
         this.userService = userService;
         this.emailService = emailService;
+        this.passwordHashingService = passwordHashingService;
     }
 
 
     @QueryMapping
     public User getUserById(@Argument UUID id) {
-        return userRepository.findById(id)
+        return userCache.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
 
     @QueryMapping
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public UserConnection getAllUsers(@Argument Integer first, @Argument String after,
+                                      DataFetchingFieldSelectionSet selectionSet) {
+        return userPage(selectionSet, first, after, false, null);
     }
 
     @QueryMapping
-    public List<User> searchUsers(@Argument String query) {
-        return userRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCaseOrFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(
-                query, query, query, query);
+    public UserConnection searchUsers(@Argument String query, @Argument Integer first, @Argument String after,
+                                      DataFetchingFieldSelectionSet selectionSet) {
+        return userSelectionRepository.searchPage(selectedNodeFields(selectionSet), query, decodeRankCursor(after),
+                first != null ? first : UserSelectionRepository.DEFAULT_PAGE_SIZE);
     }
 
     @QueryMapping
-    public List<User> getUsersByRole(@Argument Role role) {
-        return userRepository.findByRole(role);
+    public UserConnection getUsersByRole(@Argument Role role, @Argument Integer first, @Argument String after,
+                                         DataFetchingFieldSelectionSet selectionSet) {
+        return userPage(selectionSet, first, after, false, "u.role = ?", role.name());
     }
 
     @QueryMapping
-    public List<User> getUsersByCity(@Argument String city) {
-        return userRepository.findByCity(city);
+    public UserConnection getUsersByCity(@Argument String city, @Argument Integer first, @Argument String after,
+                                         DataFetchingFieldSelectionSet selectionSet) {
+        return userPage(selectionSet, first, after, false, "u.city = ?", city);
     }
 
     @QueryMapping
-    public List<User> getUsersByCountry(@Argument String country) {
-        return userRepository.findByCountry(country);
+    public UserConnection getUsersByCountry(@Argument String country, @Argument Integer first, @Argument String after,
+                                            DataFetchingFieldSelectionSet selectionSet) {
+        return userPage(selectionSet, first, after, false, "u.country = ?", country);
     }
 
     @QueryMapping
-    public List<User> getRecentUsers() {
-        return userRepository.findAllByOrderByCreatedAtDesc();
+    public UserConnection getRecentUsers(@Argument Integer first, @Argument String after,
+                                         DataFetchingFieldSelectionSet selectionSet) {
+        return userPage(selectionSet, first, after, true, null);
     }
 
     @QueryMapping
     public User getUserByEmail(@Argument String email) {
-        User user = userRepository.findByEmail(email);
+        User user = userCache.findByEmail(email);
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
         }
         return user;
     }
 
+    // ---- User collection fields: one query per field for the whole result set, not per user ----
+
+    @BatchMapping(typeName = "User", field = "favourites")
+    public Map<User, List<UUID>> favourites(List<User> users) {
+        return perUser(users, userProjectionRepository.findFavouritesByUserIds(idsOf(users)));
+    }
+
+    @BatchMapping(typeName = "User", field = "completedFeatures")
+    public Map<User, List<OnboardingFeature>> completedFeatures(List<User> users) {
+        return perUser(users, userProjectionRepository.findCompletedFeaturesByUserIds(idsOf(users)));
+    }
+
+    @BatchMapping(typeName = "User", field = "preferredPropertyTypes")
+    public Map<User, List<String>> preferredPropertyTypes(List<User> users) {
+        return perUser(users, userProjectionRepository.findPreferredPropertyTypesByUserIds(idsOf(users)));
+    }
+
+    @BatchMapping(typeName = "User", field = "preferredAmenities")
+    public Map<User, List<String>> preferredAmenities(List<User> users) {
+        return perUser(users, userProjectionRepository.findPreferredAmenitiesByUserIds(idsOf(users)));
+    }
+
+    // Password hashes are never served, whichever path loaded the user
+    @SchemaMapping(typeName = "User", field = "password")
+    public String password(User user) {
+        return null;
+    }
+
+    private static Set<UUID> idsOf(List<User> users) {
+        Set<UUID> ids = new HashSet<>(users.size() * 2);
+        for (User user : users) {
+            if (user.getId() != null) {
+                ids.add(user.getId());
+            }
+        }
+        return ids;
+    }
+
+    // Every requested user gets an entry (empty when it has no rows), since completedFeatures is non-null
+    private static <T> Map<User, List<T>> perUser(List<User> users, Map<UUID, List<T>> byId) {
+        Map<User, List<T>> result = new LinkedHashMap<>(users.size() * 2);
+        for (User user : users) {
+            result.put(user, byId.getOrDefault(user.getId(), List.of()));
+        }
+        return result;
+    }
+
+    private UserConnection userPage(DataFetchingFieldSelectionSet selectionSet, Integer first, String after,
+                                    boolean newestFirst, String filter, Object... params) {
+        return userSelectionRepository.selectPage(selectedNodeFields(selectionSet), filter, List.of(params),
+                decodeCursor(after), newestFirst, first != null ? first : UserSelectionRepository.DEFAULT_PAGE_SIZE);
+    }
+
+    private static KeysetCursor decodeCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return KeysetCursor.decodeTimestamp(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // searchUsers pages by relevance, so its cursors carry a rank rather than a timestamp
+    private static KeysetCursor decodeRankCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return KeysetCursor.decodeRank(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // Fields requested on each edges.node; UserSelectionRepository turns them into columns
+    private static Set<String> selectedNodeFields(DataFetchingFieldSelectionSet selectionSet) {
+        Set<String> fields = new HashSet<>();
+        for (SelectedField field : selectionSet.getFields("edges/node/*")) {
+            fields.add(field.getName());
+        }
+        return fields;
+    }
+
     @QueryMapping
     public int countUsers() {
-        return userRepository.findAll().size();
+        return Math.toIntExact(userAggregateRepository.countTotal());
+    }
+
+    @QueryMapping
+    public List<UserCount> getUserCounts(@Argument UserCountDimension by) {
+        return userAggregateRepository.findCounts(by);
     }
 
     @MutationMapping
@@ -257,7 +377,7 @@ public class GraphqlController {
             if (username != null) user.setUsername(username.trim());
             if (phoneNumber != null) user.setPhoneNumber(phoneNumber.trim());
             if (email != null) user.setEmail(email.toLowerCase().trim());
-            if (password != null) user.setPassword(passwordEncoder.encode(password));
+            if (password != null) user.setPassword(passwordHashingService.encode(password));
             if (profession != null) user.setProfession(profession.trim());
             if (city != null) user.setCity(city.trim());
             if (country != null) user.setCountry(country.trim());
@@ -0,0 +1,38 @@
+package dev.dolu.userservice.controller;
+
+import dev.dolu.userservice.service.TokenIntrospectionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/auth")
+public class IntrospectionController {
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    public IntrospectionController(TokenIntrospectionService tokenIntrospectionService) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+    }
+
+    /**
+     * Body: {@code {"tokens": ["<jwt>", ...]}}. Returns {@code {"results": [...]}} in the same order,
+     * each with {@code active} and, for active tokens, {@code sub}, {@code exp}, {@code jti},
+     * {@code sid}, {@code type} and {@code user}. Callers authenticate with the service API key.
+     */
+    @PostMapping("/introspect")
+    public ResponseEntity<?> introspect(@RequestBody Map<String, List<String>> request) {
+        try {
+            List<Map<String, Object>> results = tokenIntrospectionService.introspect(request.get("tokens"));
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
+}
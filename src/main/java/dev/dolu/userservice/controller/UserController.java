@@ -1,22 +1,39 @@
 package dev.dolu.userservice.controller;
 
 import dev.dolu.userservice.models.*;
+import dev.dolu.userservice.repository.UserProjectionRepository;
 import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.service.LastLoginRecorder;
+import dev.dolu.userservice.service.RefreshSessionService;
+import dev.dolu.userservice.service.UserCache;
 import dev.dolu.userservice.service.UserService;
 import dev.dolu.userservice.service.VerificationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import dev.dolu.userservice.utils.JwtUtils;
+import dev.dolu.userservice.utils.KeysetPage;
+import dev.dolu.userservice.utils.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import jakarta.mail.MessagingException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import dev.dolu.userservice.models.Role;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -26,29 +43,43 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
 
     private final UserService userService;
     private final JwtUtils jwtUtils;
     private final VerificationService verificationService;
     private final UserRepository userRepository;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final UserCache userCache;
+    private final UserProjectionRepository userProjectionRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final RefreshSessionService refreshSessionService;
 
     @Autowired
-    public UserController(UserService userService, JwtUtils jwtUtils, VerificationService verificationService, UserRepository userRepository) {
+    public UserController(UserService userService, JwtUtils jwtUtils, VerificationService verificationService, UserRepository userRepository, LastLoginRecorder lastLoginRecorder, RefreshSessionService refreshSessionService, UserCache userCache, UserProjectionRepository userProjectionRepository, ObjectMapper objectMapper,
+                          @Value("${users.batch.max-size:200}") int maxBatchSize) {
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
         this.userService = userService;
+        this.userCache = userCache;
+        this.userProjectionRepository = userProjectionRepository;
+        this.refreshSessionService = refreshSessionService;
+        this.lastLoginRecorder = lastLoginRecorder;
         this.jwtUtils = jwtUtils;
         this.userRepository = userRepository;
         this.verificationService = verificationService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> loginUser(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest httpRequest) {
         try {
             logger.info("Login attempt for email: {}", loginRequest.getEmail());
-            Map<String, String> tokens = userService.login(loginRequest.getEmail(), loginRequest.getPassword());
+            Map<String, String> tokens = userService.login(loginRequest.getEmail(), loginRequest.getPassword(), clientIp(httpRequest));
             return new ResponseEntity<>(tokens, HttpStatus.OK);
         } catch (ResponseStatusException e) {
             logger.warn("Login failed: {}", e.getReason());
-            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+            return ResponseEntity.status(e.getStatusCode()).headers(e.getHeaders()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             logger.error("Unexpected error during login", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected error occurred."));
@@ -56,16 +87,17 @@ public class UserController {
     }
 
     @PostMapping("/login-zennest")
-    public ResponseEntity<Map<String, String>> loginZenest(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, String>> loginZenest(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         String email = request.get("email");
         String password = request.get("password");
         logger.info("Zennest login requested for email: {}", email);
 
         try {
-            Map<String, String> tokens = userService.loginZenest(email, password);
+            Map<String, String> tokens = userService.loginZenest(email, password, clientIp(httpRequest));
             return ResponseEntity.ok(tokens);
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode())
+                    .headers(e.getHeaders())
                     .body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             logger.error("Unexpected error during Zenest login", e);
@@ -74,6 +106,13 @@ public class UserController {
         }
     }
 
+    // Tomcat's RemoteIpValve (server.forward-headers-strategy=native) has already replaced the socket
+    // address with the right-most X-Forwarded-For hop not in server.tomcat.remoteip.internal-proxies,
+    // so a client cannot pick its own rate-limit key by sending the header itself
+    private static String clientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> registerUser(@Valid @RequestBody User user) {
         logger.info("Registering user: {}", user.getEmail());
@@ -85,12 +124,27 @@ public class UserController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+    public ResponseEntity<?> logoutUser(HttpServletRequest request, @RequestBody(required = false) Map<String, String> body) {
         String jwt = request.getHeader("Authorization");
         if (jwt != null && jwt.startsWith("Bearer ")) {
             jwt = jwt.substring(7);
-            long expiration = jwtUtils.getExpirationFromToken(jwt);
-            jwtUtils.blacklistToken(jwt, expiration, TimeUnit.MILLISECONDS);
+            VerifiedToken verified = jwtUtils.verify(jwt);
+            jwtUtils.blacklistToken(jwt, verified.remainingMillis(), TimeUnit.MILLISECONDS);
+
+            // End this device's refresh session: named by the access token, or by the refresh token sent along
+            String sessionId = verified.sessionId();
+            String refreshToken = body != null ? body.get("refreshToken") : null;
+            if (sessionId == null && refreshToken != null) {
+                try {
+                    VerifiedToken refresh = jwtUtils.verify(refreshToken);
+                    sessionId = jwtUtils.isRefreshToken(refresh) ? refresh.sessionId() : null;
+                } catch (JwtException | IllegalArgumentException e) {
+                    logger.debug("Ignoring unusable refresh token on logout: {}", e.getMessage());
+                }
+            }
+            if (sessionId != null) {
+                refreshSessionService.revoke(verified.subject(), sessionId);
+            }
             logger.info("User logged out. Token blacklisted.");
             return new ResponseEntity<>("Logged out successfully", HttpStatus.OK);
         }
@@ -98,17 +152,29 @@ public class UserController {
         return new ResponseEntity<>("Invalid token", HttpStatus.BAD_REQUEST);
     }
 
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAllDevices(HttpServletRequest request) {
+        String jwt = request.getHeader("Authorization");
+        if (jwt == null || !jwt.startsWith("Bearer ")) {
+            return new ResponseEntity<>("Invalid token", HttpStatus.BAD_REQUEST);
+        }
+        jwt = jwt.substring(7);
+        VerifiedToken verified = jwtUtils.verify(jwt);
+        jwtUtils.blacklistToken(jwt, verified.remainingMillis(), TimeUnit.MILLISECONDS);
+        long revoked = refreshSessionService.revokeAll(verified.subject());
+        logger.info("User signed out of {} sessions.", revoked);
+        return ResponseEntity.ok(Map.of("message", "Logged out of all devices", "sessionsRevoked", revoked));
+    }
+
     @PostMapping("/refresh-token")
     public ResponseEntity<?> refreshToken(HttpServletRequest request, @RequestBody Map<String, String> refreshTokenRequest) {
         String refreshToken = refreshTokenRequest.get("refreshToken");
-        String email = jwtUtils.getUsernameFromJwtToken(refreshToken);
-        logger.info("Refresh token requested by user: {}", email);
-        if (email != null && jwtUtils.validateRefreshToken(refreshToken) && jwtUtils.isRefreshTokenValid(email, refreshToken)) {
-            String newAccessToken = jwtUtils.generateJwtToken(email);
-            return ResponseEntity.ok(Map.of("accessToken", newAccessToken));
-        } else {
-            logger.warn("Invalid or expired refresh token for email: {}", email);
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid or expired refresh token.");
+        try {
+            // One script call: checks the session, detects reuse, and swaps in the new refresh token
+            return ResponseEntity.ok(refreshSessionService.rotate(refreshToken));
+        } catch (ResponseStatusException e) {
+            logger.warn("Refresh token rejected: {}", e.getReason());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getReason());
         }
     }
 
@@ -146,67 +212,11 @@ public class UserController {
         String jwt = request.getHeader("Authorization").substring(7);
         String email = jwtUtils.getUsernameFromJwtToken(jwt);
         logger.info("Fetching user details for email: {}", email);
-        User user = userRepository.findByEmail(email);
-        if (user != null) {
-            Map<String, Object> userDetails = new HashMap<>();
-            userDetails.put("id", user.getId());
-            userDetails.put("email", user.getEmail());
-            userDetails.put("role", user.getRole());
-            userDetails.put("firstName", user.getFirstName());
-            userDetails.put("lastName", user.getLastName());
-            userDetails.put("username", user.getUsername());
-            userDetails.put("profileImage", user.getProfileImage());
-            userDetails.put("phoneNumber", user.getPhoneNumber());
-            userDetails.put("verified", user.isVerified());
-            userDetails.put("enabled", user.isEnabled());
-            userDetails.put("city", user.getCity());
-            userDetails.put("country", user.getCountry());
-            userDetails.put("dateOfBirth", user.getDateOfBirth());
-            userDetails.put("profession", user.getProfession());
-            userDetails.put("activePlan", user.getActivePlan());
-            userDetails.put("favourites", user.getFavourites());
-            userDetails.put("intention", user.getIntention());
-            userDetails.put("profileDescription", user.getProfileDescription());
-            userDetails.put("profilePicture", user.getProfilePicture());
-            userDetails.put("updatedAt", user.getUpdatedAt());
-
-            // Additional fields
-            userDetails.put("openVisitations", user.isOpenVisitations());
-            userDetails.put("paymentVerified", user.isPaymentVerified());
-            userDetails.put("fcmDeviceToken", user.getFcmDeviceToken());
-            userDetails.put("lastLogin", user.getLastLogin());
-            userDetails.put("profileCompleted", user.isProfileCompleted());
-            userDetails.put("onboardingCompleted", user.isOnboardingCompleted());
-            userDetails.put("subscriptionPlan", user.getSubscriptionPlan());
-            userDetails.put("subscriptionActive", user.isSubscriptionActive());
-            userDetails.put("totalEarnings", user.getTotalEarnings());
-            userDetails.put("completedFeatures", user.getCompletedFeatures());
-            userDetails.put("businessType", user.getBusinessType());
-            userDetails.put("visitDuration", user.getVisitDuration());
-            userDetails.put("autoAcceptBooking", user.isAutoAcceptBooking());
-            userDetails.put("autoAcceptVisitation", user.isAutoAcceptVisitation());
-            userDetails.put("emailNotificationsEnabled", user.isEmailNotificationsEnabled());
-            userDetails.put("smsNotificationsEnabled", user.isSmsNotificationsEnabled());
-            userDetails.put("pushNotificationsEnabled", user.isPushNotificationsEnabled());
-            userDetails.put("bufferTimeHours", user.getBufferTimeHours());
-            userDetails.put("createdAt", user.getCreatedAt());
-            userDetails.put("version", user.getVersion());
-            // Additional missing fields
-            userDetails.put("authProvider", user.getAuthProvider());
-            userDetails.put("payoutInfo", user.getPayoutInfo());
-
-// Tenant-specific fields
-            userDetails.put("searchRadius", user.getSearchRadius());
-            userDetails.put("priceAlerts", user.getPriceAlerts());
-            userDetails.put("newListingAlerts", user.getNewListingAlerts());
-            userDetails.put("visitReminders", user.getVisitReminders());
-            userDetails.put("autoSaveSearches", user.getAutoSaveSearches());
-            userDetails.put("maxBudget", user.getMaxBudget());
-            userDetails.put("preferredPropertyTypes", user.getPreferredPropertyTypes());
-            userDetails.put("preferredAmenities", user.getPreferredAmenities());
-
-
-            return ResponseEntity.ok(userDetails);
+        // One statement for the row and its four collection tables
+        UserDetailsView userDetails = userProjectionRepository.findUserDetailsByEmail(email);
+        if (userDetails != null) {
+            LocalDateTime bufferedLogin = lastLoginRecorder.pendingFor(userDetails.id());
+            return ResponseEntity.ok(bufferedLogin != null ? userDetails.withLastLogin(bufferedLogin) : userDetails);
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
     }
@@ -223,7 +233,7 @@ public class UserController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable UUID id) {
         logger.info("Fetching user by ID: {}", id);
-        Optional<User> user = userRepository.findById(id);
+        Optional<User> user = userCache.findById(id);
         if (user.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
         }
@@ -234,20 +244,107 @@ public class UserController {
         ));
     }
 
-    @GetMapping("/all")
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
+    /**
+     * Without paging parameters this keeps returning every user as one JSON array, but the array is
+     * written while the rows are streamed, so heap use does not grow with the table. With
+     * {@code limit} and/or {@code cursor} the request goes to {@link #getUsersPage} instead.
+     */
+    @GetMapping(value = "/all", params = {"!limit", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> getAllUsers() {
         logger.info("Fetching all users");
-        List<UserDTO> users = userRepository.findAll().stream()
-                .map(UserDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(users);
+        StreamingResponseBody body = out -> {
+            ObjectWriter writer = objectMapper.writerFor(UserDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.writeStartArray();
+            userProjectionRepository.streamUserDtos(user -> writeUnchecked(() -> writer.writeValue(generator, user)));
+            generator.writeEndArray();
+            generator.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /** One keyset page of users: {@code {users, nextCursor}}; pass {@code nextCursor} back as {@code cursor}. */
+    @GetMapping("/all")
+    public ResponseEntity<Map<String, Object>> getUsersPage(@RequestParam(required = false) Integer limit,
+                                                            @RequestParam(required = false) String cursor) {
+        logger.info("Fetching users page of {} after cursor {}", limit, cursor);
+        KeysetPage<UserDTO> page;
+        try {
+            page = userProjectionRepository.findUserDtoPage(cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("users", page.items());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
     }
 
+    /** Every user as newline-delimited JSON, one {@link UserDTO} per line, streamed from a database cursor. */
+    @GetMapping(value = "/all", params = {"!limit", "!cursor"}, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        logger.info("Streaming all users as NDJSON");
+        StreamingResponseBody body = out -> userProjectionRepository.streamUserDtos(user -> writeUnchecked(() -> {
+            out.write(objectMapper.writeValueAsBytes(user));
+            out.write('\n');
+        }));
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void writeUnchecked(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Resolves up to {@code users.batch.max-size} users by id in one query. {@code fields} picks the
+     * projection: {@code summary}, {@code contact}, {@code booking-settings}, or the full profile
+     * (default, without credentials).
+     */
     @PostMapping("/batch")
-    public ResponseEntity<?> getUsersByIds(@RequestBody List<UUID> userIds) {
-        logger.info("Fetching batch users: {}", userIds);
-        List<User> users = userRepository.findAllById(userIds);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<?> getUsersByIds(@RequestBody List<UUID> userIds,
+                                           @RequestParam(required = false) String fields) {
+        UserFieldSet fieldSet = batchFieldSet(fields);
+        Set<UUID> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        checkBatchSize(ids.size());
+        logger.info("Fetching {} batch users ({})", ids.size(), fieldSet.getParam());
+        return ResponseEntity.ok(userProjectionRepository.findByIds(ids, fieldSet));
+    }
+
+    /** {@link #getUsersByIds} keyed by email. */
+    @PostMapping("/batch/by-email")
+    public ResponseEntity<?> getUsersByEmails(@RequestBody List<String> emails,
+                                              @RequestParam(required = false) String fields) {
+        UserFieldSet fieldSet = batchFieldSet(fields);
+        Set<String> distinct = new LinkedHashSet<>(emails);
+        distinct.remove(null);
+        checkBatchSize(distinct.size());
+        logger.info("Fetching {} batch users by email ({})", distinct.size(), fieldSet.getParam());
+        return ResponseEntity.ok(userProjectionRepository.findByEmails(distinct, fieldSet));
+    }
+
+    private static UserFieldSet batchFieldSet(String fields) {
+        try {
+            return UserFieldSet.fromParam(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unknown fields value. Use summary, contact, booking-settings or full.");
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " users can be requested per batch.");
+        }
     }
 
     @PatchMapping("/{id}/profile-complete")
@@ -314,13 +411,17 @@ public class UserController {
         }
 
         // Generate tokens after successful verification
-        String accessToken = jwtUtils.generateJwtToken(request.getEmail());
-        String refreshToken = jwtUtils.generateRefreshToken(request.getEmail());
+        User user = userRepository.findByEmail(request.getEmail());
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "User not found"));
+        }
+        Map<String, String> tokens = refreshSessionService.issueTokens(user);
 
         return ResponseEntity.ok(Map.of(
                 "message", "User verified successfully",
-                "accessToken", accessToken,
-                "refreshToken", refreshToken
+                "accessToken", tokens.get("accessToken"),
+                "refreshToken", tokens.get("refreshToken")
         ));
     }
 
@@ -330,8 +431,14 @@ public class UserController {
             String magicToken = request.get("token");
             logger.info("Magic sign-in attempt with token");
 
-            // Validate the magic token
-            if (magicToken == null || !jwtUtils.validateJwtToken(magicToken)) {
+            // Validate the magic token (signature and claims are decoded once here)
+            VerifiedToken verified;
+            try {
+                verified = magicToken == null ? null : jwtUtils.verify(magicToken);
+            } catch (JwtException | IllegalArgumentException e) {
+                verified = null;
+            }
+            if (verified == null) {
                 logger.warn("Invalid or expired magic token");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Invalid or expired magic link"));
@@ -345,7 +452,7 @@ public class UserController {
             }
 
             // Extract user details from the magic token
-            Map<String, Object> userDetails = jwtUtils.getUserDetailsFromJwtToken(magicToken);
+            Map<String, Object> userDetails = verified.hasUserClaim() ? verified.user() : null;
             if (userDetails == null) {
                 logger.warn("Magic token missing user details");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -365,12 +472,12 @@ public class UserController {
             }
 
             // Generate new access and refresh tokens for the authenticated session
-            String accessToken = jwtUtils.generateJwtToken(user.getId(), user.getEmail(), user.getRole().toString());
-            String refreshToken = jwtUtils.generateRefreshToken(user.getEmail());
-            jwtUtils.storeRefreshToken(refreshToken, user.getEmail());
+            RefreshSessionService.IssuedSession session = refreshSessionService.openSession(user);
+            String accessToken = jwtUtils.generateJwtToken(user.getId(), user.getEmail(), user.getRole().toString(), session.sessionId());
+            String refreshToken = session.refreshToken();
 
             // Optionally blacklist the magic token to prevent reuse
-            long expiration = jwtUtils.getExpirationFromToken(magicToken);
+            long expiration = verified.remainingMillis();
             if (expiration > 0) {
                 jwtUtils.blacklistToken(magicToken, expiration, TimeUnit.MILLISECONDS);
             }
@@ -458,7 +565,7 @@ public class UserController {
             userService.changePassword(user.getId(), request);
             return ResponseEntity.ok(Map.of("message", "Password changed successfully."));
         } catch (ResponseStatusException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+            return ResponseEntity.status(e.getStatusCode()).headers(e.getHeaders()).body(Map.of("error", e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected error occurred."));
         }
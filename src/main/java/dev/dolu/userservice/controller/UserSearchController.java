@@ -4,6 +4,7 @@ import dev.dolu.userservice.models.UserSearch;
 import dev.dolu.userservice.models.User;
 import dev.dolu.userservice.repository.UserRepository;
 import dev.dolu.userservice.repository.UserSearchRepository;
+import dev.dolu.userservice.service.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,11 +22,13 @@ public class UserSearchController {
 
     private final UserSearchRepository userSearchRepository;
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     @Autowired
-    public UserSearchController(UserSearchRepository userSearchRepository, UserRepository userRepository) {
+    public UserSearchController(UserSearchRepository userSearchRepository, UserRepository userRepository, UserCache userCache) {
         this.userSearchRepository = userSearchRepository;
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     // Create a new search
@@ -50,7 +53,7 @@ public class UserSearchController {
         if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
-        User user = userRepository.findByEmail(principal.getName());
+        User user = userCache.findByEmail(principal.getName());
         if (user == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
@@ -1,14 +1,24 @@
 package dev.dolu.userservice.metrics;
 
+import dev.dolu.userservice.models.Role;
 import dev.dolu.userservice.repository.UserRepository;
 import dev.dolu.userservice.repository.VerificationTokenRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * CustomMetricService registers various custom metrics using Micrometer.
@@ -28,6 +38,18 @@ import java.util.concurrent.TimeUnit;
  *   <li><b>email.failure.count</b> (Counter): Email sending failures.</li>
  *   <li><b>email.sending.timer</b> (Timer): Time taken to send emails.</li>
  *   <li><b>verification.tokens.active</b> (Gauge): Current number of active verification tokens.</li>
+ *   <li><b>password.hashing.queue.depth</b> (Gauge): Hash/verify tasks waiting for a hashing thread.</li>
+ *   <li><b>password.hashing.wait.timer</b> (Timer): Time a hash/verify task spent queued.</li>
+ *   <li><b>password.hashing.hash.timer</b> (Timer): CPU time spent inside the password encoder.</li>
+ *   <li><b>password.hashing.rejected.count</b> (Counter): Hash/verify tasks rejected because the pool was saturated.</li>
+ *   <li><b>authentication.login.blocked.count</b> (Counter, tag {@code scope}=email|ip): Logins refused by the throttle before any hashing.</li>
+ *   <li><b>authentication.login.throttle.fallback.count</b> (Counter): Throttle decisions served in-process because Redis was unavailable.</li>
+ *   <li><b>users.cache.hit.count</b> (Counter, tag {@code tier}=local|redis): User reads answered by the cache.</li>
+ *   <li><b>users.cache.miss.count</b> (Counter): User reads that went to the database.</li>
+ *   <li><b>users.cache.eviction.count</b> (Counter, tag {@code cause}=invalidation|capacity): Local user cache entries dropped.</li>
+ *   <li><b>users.aggregates.drift.count</b> (Counter): User aggregate counter rows corrected by reconciliation.</li>
+ *   <li><b>graphql.documents.count</b> (Counter, tag {@code result}=hit|miss|not_found|invalid|rejected): GraphQL document cache outcomes.</li>
+ *   <li><b>graphql.query.cost</b> (DistributionSummary, tags {@code role}, {@code outcome}=accepted|rejected): Estimated GraphQL operation cost.</li>
  * </ul>
  */
 @Service
@@ -58,6 +80,29 @@ public class CustomMetricService {
     // Verification token metric: active tokens gauge
     private final Gauge activeVerificationTokensGauge;
 
+    // Password hashing pool metrics
+    private final MeterRegistry meterRegistry;
+    private final Timer passwordHashingWaitTimer;
+    private final Timer passwordHashingHashTimer;
+    private final Counter passwordHashingRejectedCounter;
+
+    // Login throttle metrics
+    private final Counter loginThrottleFallbackCounter;
+    private final Counter loginBlockedByEmailCounter;
+    private final Counter loginBlockedByIpCounter;
+
+    // User cache metrics
+    private final Counter userCacheLocalHitCounter;
+    private final Counter userCacheRedisHitCounter;
+    private final Counter userCacheMissCounter;
+    private final Counter userCacheInvalidationCounter;
+
+    // GraphQL metrics
+    private final Map<String, Counter> graphqlDocumentCounters;
+    // By caller role; pre-registered for every Role and anonymous, other roles registered on first use
+    private final Map<String, DistributionSummary> graphqlAcceptedCostSummaries = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> graphqlRejectedCostSummaries = new ConcurrentHashMap<>();
+
     /**
      * Constructs the CustomMetricService and registers all custom metrics.
      *
@@ -68,6 +113,8 @@ public class CustomMetricService {
     public CustomMetricService(MeterRegistry meterRegistry,
                                UserRepository userRepository,
                                VerificationTokenRepository tokenRepository) {
+        this.meterRegistry = meterRegistry;
+
         // Register gauge for total users
         this.usersTotalGauge = Gauge.builder("users.total", userRepository, UserRepository::count)
                 .description("Total number of users")
@@ -118,6 +165,74 @@ public class CustomMetricService {
         this.activeVerificationTokensGauge = Gauge.builder("verification.tokens.active", tokenRepository, VerificationTokenRepository::count)
                 .description("Current number of active verification tokens")
                 .register(meterRegistry);
+
+        // Password Hashing Pool Metrics
+        this.passwordHashingWaitTimer = Timer.builder("password.hashing.wait.timer")
+                .description("Time a password hash/verify task waited for a hashing thread")
+                .register(meterRegistry);
+        this.passwordHashingHashTimer = Timer.builder("password.hashing.hash.timer")
+                .description("Time spent hashing or verifying a password")
+                .register(meterRegistry);
+        this.passwordHashingRejectedCounter = Counter.builder("password.hashing.rejected.count")
+                .description("Total number of password hash/verify tasks rejected by the saturated hashing pool")
+                .register(meterRegistry);
+
+        // Login Throttle Metrics
+        this.loginThrottleFallbackCounter = Counter.builder("authentication.login.throttle.fallback.count")
+                .description("Login throttle decisions made in-process because Redis was unavailable")
+                .register(meterRegistry);
+        this.loginBlockedByEmailCounter = loginBlockedCounter("email");
+        this.loginBlockedByIpCounter = loginBlockedCounter("ip");
+
+        // User Cache Metrics
+        this.userCacheLocalHitCounter = userCacheHitCounter("local");
+        this.userCacheRedisHitCounter = userCacheHitCounter("redis");
+        this.userCacheMissCounter = Counter.builder("users.cache.miss.count")
+                .description("User reads that missed both cache tiers and went to the database")
+                .register(meterRegistry);
+        this.userCacheInvalidationCounter = Counter.builder("users.cache.eviction.count")
+                .description("Local user cache entries dropped")
+                .tag("cause", "invalidation")
+                .register(meterRegistry);
+
+        // GraphQL Metrics
+        Map<String, Counter> documentCounters = new HashMap<>();
+        for (String result : List.of("hit", "miss", "not_found", "invalid", "rejected")) {
+            documentCounters.put(result, Counter.builder("graphql.documents.count")
+                    .description("GraphQL documents resolved by the parsed-document cache, by outcome")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+        this.graphqlDocumentCounters = Map.copyOf(documentCounters);
+        graphqlCostSummary("anonymous", false);
+        graphqlCostSummary("anonymous", true);
+        for (Role role : Role.values()) {
+            graphqlCostSummary(role.name().toLowerCase(Locale.ROOT), false);
+            graphqlCostSummary(role.name().toLowerCase(Locale.ROOT), true);
+        }
+    }
+
+    private DistributionSummary graphqlCostSummary(String role, boolean rejected) {
+        Map<String, DistributionSummary> summaries = rejected ? graphqlRejectedCostSummaries : graphqlAcceptedCostSummaries;
+        return summaries.computeIfAbsent(role, r -> DistributionSummary.builder("graphql.query.cost")
+                .description("Estimated cost of GraphQL operations, checked against the caller's budget")
+                .tag("role", r)
+                .tag("outcome", rejected ? "rejected" : "accepted")
+                .register(meterRegistry));
+    }
+
+    private Counter loginBlockedCounter(String scope) {
+        return Counter.builder("authentication.login.blocked.count")
+                .description("Login attempts refused by the throttle before any password hashing")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    private Counter userCacheHitCounter(String tier) {
+        return Counter.builder("users.cache.hit.count")
+                .description("User reads answered by the local or Redis cache tier")
+                .tag("tier", tier)
+                .register(meterRegistry);
     }
 
     // ------------------- Increment and Record Methods -------------------
@@ -170,5 +285,70 @@ public class CustomMetricService {
         emailSendingTimer.record(durationInMillis, TimeUnit.MILLISECONDS);
     }
 
+    // Password hashing pool methods
+    public void registerPasswordHashingQueueDepth(Supplier<Number> queueDepth) {
+        Gauge.builder("password.hashing.queue.depth", queueDepth)
+                .description("Password hash/verify tasks waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    public void recordPasswordHashingWaitTime(long durationInNanos) {
+        passwordHashingWaitTimer.record(durationInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPasswordHashingTime(long durationInNanos) {
+        passwordHashingHashTimer.record(durationInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementPasswordHashingRejectedCounter() {
+        passwordHashingRejectedCounter.increment();
+    }
+
+    // Login throttle methods
+    public void incrementLoginBlockedCounter(String scope) {
+        ("email".equals(scope) ? loginBlockedByEmailCounter : loginBlockedByIpCounter).increment();
+    }
+
+    public void incrementLoginThrottleFallbackCounter() {
+        loginThrottleFallbackCounter.increment();
+    }
+
+    // User cache methods
+    public void incrementUserCacheHitCounter(String tier) {
+        ("local".equals(tier) ? userCacheLocalHitCounter : userCacheRedisHitCounter).increment();
+    }
+
+    public void incrementUserCacheMissCounter() {
+        userCacheMissCounter.increment();
+    }
+
+    public void incrementUserCacheInvalidationCounter() {
+        userCacheInvalidationCounter.increment();
+    }
+
+    public <T> void registerUserCacheCapacityEvictions(T cache, ToDoubleFunction<T> evictions) {
+        FunctionCounter.builder("users.cache.eviction.count", cache, evictions)
+                .description("Local user cache entries dropped")
+                .tag("cause", "capacity")
+                .register(meterRegistry);
+    }
+
+    // User aggregate counter methods
+    public void incrementUserAggregateDriftCounter(long correctedRows) {
+        Counter.builder("users.aggregates.drift.count")
+                .description("User aggregate counter rows corrected by the reconciliation job")
+                .register(meterRegistry)
+                .increment(correctedRows);
+    }
+
+    // GraphQL document cache methods
+    public void incrementGraphqlDocumentCounter(String result) {
+        graphqlDocumentCounters.get(result).increment();
+    }
+
+    public void recordGraphqlQueryCost(String role, boolean rejected, long cost) {
+        graphqlCostSummary(role, rejected).record(cost);
+    }
+
     // The activeVerificationTokensGauge is automatically updated by Micrometer.
 }
\ No newline at end of file
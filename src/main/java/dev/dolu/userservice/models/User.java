@@ -1,18 +1,24 @@
 package dev.dolu.userservice.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import dev.dolu.userservice.service.UserCacheInvalidator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(UserCacheInvalidator.class)
 @Table(name = "qorelabs_users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "email"),
         @UniqueConstraint(columnNames = "username"),
@@ -33,6 +39,11 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // Lower-cased, trimmed copy of email; every email lookup goes through this column
+    @JsonIgnore
+    @Column(name = "email_normalized", unique = true)
+    private String emailNormalized;
+
     private String phoneNumber;
 
     @NotBlank
@@ -101,7 +112,9 @@ public class User {
     @Column(nullable = false)
     private boolean paymentVerified = false;
 
+    // Loaded for all users of a query in one extra statement rather than one per user
     @ElementCollection(targetClass = OnboardingFeature.class, fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
     @Enumerated(EnumType.STRING)
     @CollectionTable(name = "user_onboarding_features", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "feature")
@@ -169,11 +182,17 @@ public class User {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        emailNormalized = normalizeEmail(email);
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        emailNormalized = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
     }
 
     // Getters and Setters (same as before)
@@ -218,6 +237,11 @@ public class User {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailNormalized = normalizeEmail(email);
+    }
+
+    public String getEmailNormalized() {
+        return emailNormalized;
     }
 
     public String getPhoneNumber() {
@@ -0,0 +1,15 @@
+package dev.dolu.userservice.models;
+
+import java.util.UUID;
+
+/** A host's booking and visitation rules, as read by the booking service ({@code fields=booking-settings}). */
+public record UserBookingSettingsView(
+        UUID id,
+        boolean openVisitations,
+        boolean autoAcceptBooking,
+        boolean autoAcceptVisitation,
+        VisitDuration visitDuration,
+        int bufferTimeHours,
+        BusinessType businessType,
+        boolean paymentVerified) {
+}
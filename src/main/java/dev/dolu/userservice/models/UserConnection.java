@@ -0,0 +1,16 @@
+package dev.dolu.userservice.models;
+
+import java.util.List;
+
+/**
+ * Relay-style page of users for the GraphQL list queries ({@code UserConnection} in the schema).
+ * Cursors are opaque {@code KeysetCursor}s over {@code (created_at, id)}.
+ */
+public record UserConnection(List<Edge> edges, PageInfo pageInfo) {
+
+    public record Edge(String cursor, User node) {
+    }
+
+    public record PageInfo(boolean hasNextPage, boolean hasPreviousPage, String startCursor, String endCursor) {
+    }
+}
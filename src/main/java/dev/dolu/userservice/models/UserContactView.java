@@ -0,0 +1,16 @@
+package dev.dolu.userservice.models;
+
+import java.util.UUID;
+
+/** What notification senders need: addresses, device token and channel opt-ins ({@code fields=contact}). */
+public record UserContactView(
+        UUID id,
+        String firstName,
+        String lastName,
+        String email,
+        String phoneNumber,
+        String fcmDeviceToken,
+        boolean emailNotificationsEnabled,
+        boolean smsNotificationsEnabled,
+        boolean pushNotificationsEnabled) {
+}
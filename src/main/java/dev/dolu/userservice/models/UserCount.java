@@ -0,0 +1,5 @@
+package dev.dolu.userservice.models;
+
+/** Number of users with one value of a {@link UserCountDimension}; {@code value} is null for users without one. */
+public record UserCount(String value, long count) {
+}
@@ -0,0 +1,20 @@
+package dev.dolu.userservice.models;
+
+/** A user attribute the dashboard counters are kept by; {@code key} is the row's dimension in user_aggregate_counts. */
+public enum UserCountDimension {
+    ROLE("role"),
+    CITY("city"),
+    COUNTRY("country"),
+    AUTH_PROVIDER("auth_provider"),
+    SUBSCRIPTION("subscription");
+
+    private final String key;
+
+    UserCountDimension(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -22,6 +22,17 @@ public class UserDTO {
         this.fcmDeviceToken = user.getFcmDeviceToken();
     }
 
+    public UserDTO(UUID id, String username, String email, PayoutInfo payoutInfo,
+                   boolean openVisitations, boolean paymentVerified, String fcmDeviceToken) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.payoutInfo = payoutInfo;
+        this.openVisitations = openVisitations;
+        this.isPaymentVerified = paymentVerified;
+        this.fcmDeviceToken = fcmDeviceToken;
+    }
+
     // Getters and setters
     public UUID getId() {
         return id;
@@ -0,0 +1,77 @@
+package dev.dolu.userservice.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read model behind {@code GET /api/users/user-details}. Component names are the JSON keys the
+ * endpoint has always returned; it is filled from a single SQL statement, collections included.
+ */
+public record UserDetailsView(
+        UUID id,
+        String email,
+        Role role,
+        String firstName,
+        String lastName,
+        String username,
+        String profileImage,
+        String phoneNumber,
+        boolean verified,
+        boolean enabled,
+        String city,
+        String country,
+        LocalDate dateOfBirth,
+        String profession,
+        String activePlan,
+        List<UUID> favourites,
+        UserIntention intention,
+        String profileDescription,
+        String profilePicture,
+        LocalDateTime updatedAt,
+        boolean openVisitations,
+        boolean paymentVerified,
+        String fcmDeviceToken,
+        LocalDateTime lastLogin,
+        boolean profileCompleted,
+        boolean onboardingCompleted,
+        String subscriptionPlan,
+        boolean subscriptionActive,
+        Double totalEarnings,
+        Set<OnboardingFeature> completedFeatures,
+        BusinessType businessType,
+        VisitDuration visitDuration,
+        boolean autoAcceptBooking,
+        boolean autoAcceptVisitation,
+        boolean emailNotificationsEnabled,
+        boolean smsNotificationsEnabled,
+        boolean pushNotificationsEnabled,
+        int bufferTimeHours,
+        LocalDateTime createdAt,
+        Long version,
+        AuthProvider authProvider,
+        PayoutInfo payoutInfo,
+        Integer searchRadius,
+        Boolean priceAlerts,
+        Boolean newListingAlerts,
+        Boolean visitReminders,
+        Boolean autoSaveSearches,
+        Double maxBudget,
+        List<String> preferredPropertyTypes,
+        List<String> preferredAmenities) {
+
+    /** Same view with {@code lastLogin} replaced, e.g. by a login that has not been flushed yet. */
+    public UserDetailsView withLastLogin(LocalDateTime lastLogin) {
+        return new UserDetailsView(id, email, role, firstName, lastName, username, profileImage, phoneNumber,
+                verified, enabled, city, country, dateOfBirth, profession, activePlan, favourites, intention,
+                profileDescription, profilePicture, updatedAt, openVisitations, paymentVerified, fcmDeviceToken,
+                lastLogin, profileCompleted, onboardingCompleted, subscriptionPlan, subscriptionActive,
+                totalEarnings, completedFeatures, businessType, visitDuration, autoAcceptBooking,
+                autoAcceptVisitation, emailNotificationsEnabled, smsNotificationsEnabled, pushNotificationsEnabled,
+                bufferTimeHours, createdAt, version, authProvider, payoutInfo, searchRadius, priceAlerts,
+                newListingAlerts, visitReminders, autoSaveSearches, maxBudget, preferredPropertyTypes,
+                preferredAmenities);
+    }
+}
@@ -0,0 +1,39 @@
+package dev.dolu.userservice.models;
+
+/**
+ * Field sets a batch lookup can ask for ({@code ?fields=} on {@code /api/users/batch}). Each maps to
+ * a lean projection; {@link #FULL} is the complete profile (everything but credentials).
+ */
+public enum UserFieldSet {
+    SUMMARY("summary"),
+    CONTACT("contact"),
+    BOOKING_SETTINGS("booking-settings"),
+    FULL("full");
+
+    private final String param;
+
+    UserFieldSet(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Parses the request parameter; missing means {@link #FULL}.
+     *
+     * @throws IllegalArgumentException for an unknown field set
+     */
+    public static UserFieldSet fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        for (UserFieldSet fieldSet : values()) {
+            if (fieldSet.param.equalsIgnoreCase(value.trim())) {
+                return fieldSet;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field set: " + value);
+    }
+}
@@ -0,0 +1,17 @@
+package dev.dolu.userservice.models;
+
+import java.util.UUID;
+
+/** Owner/host card: who the user is and how to display them ({@code fields=summary}). */
+public record UserSummaryView(
+        UUID id,
+        String username,
+        String firstName,
+        String lastName,
+        String profileImage,
+        String profilePicture,
+        Role role,
+        boolean verified,
+        String city,
+        String country) {
+}
@@ -0,0 +1,103 @@
+package dev.dolu.userservice.repository;
+
+import dev.dolu.userservice.models.UserCount;
+import dev.dolu.userservice.models.UserCountDimension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Reads the {@code user_aggregate_counts} summary table. A trigger on {@code qorelabs_users} keeps it
+ * current inside every writing transaction (see V1_20), so each read is a primary-key lookup or one
+ * short range scan, however many users there are.
+ */
+@Repository
+public class UserAggregateRepository {
+
+    private static final String TOTAL_SQL =
+            "SELECT count FROM user_aggregate_counts WHERE dimension = 'total' AND value = ''";
+
+    private static final String COUNTS_SQL =
+            "SELECT value, count FROM user_aggregate_counts WHERE dimension = ? AND count > 0 ORDER BY count DESC, value";
+
+    // Serializes reconcilers across nodes without blocking writers; two concurrent runs would each
+    // apply the same correction. Arbitrary application-wide key.
+    private static final String RECONCILE_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(7346521020)";
+
+    // One statement, so the users scan and the counter read share a snapshot: a writer's rows and its
+    // trigger bumps commit together, and either both are visible or neither is. The difference is thus
+    // exactly the drift, and it is added (not assigned) to each counter, which stays correct for
+    // writers that commit while the scan runs. Only the drifted counter rows are locked, and only for
+    // the final upsert. One GROUPING SETS pass computes every dimension.
+    private static final String RECONCILE_SQL = """
+            WITH grouped AS (
+                SELECT GROUPING(role, city, country, auth_provider, subscription_active) AS g,
+                       role, city, country, auth_provider, subscription_active, count(*) AS count
+                FROM qorelabs_users
+                GROUP BY GROUPING SETS ((), (role), (city), (country), (auth_provider), (subscription_active))
+            ), actual AS (
+                SELECT CASE g WHEN 31 THEN 'total' WHEN 15 THEN 'role' WHEN 23 THEN 'city'
+                              WHEN 27 THEN 'country' WHEN 29 THEN 'auth_provider' ELSE 'subscription' END AS dimension,
+                       CASE g WHEN 31 THEN ''
+                              WHEN 15 THEN coalesce(role, '')
+                              WHEN 23 THEN coalesce(city, '')
+                              WHEN 27 THEN coalesce(country, '')
+                              WHEN 29 THEN coalesce(auth_provider, '')
+                              ELSE CASE WHEN subscription_active THEN 'active' ELSE 'inactive' END END AS value,
+                       count
+                FROM grouped
+            ), summed AS (
+                -- subscription_active NULL and false both count as 'inactive'
+                SELECT dimension, value, sum(count) AS count FROM actual GROUP BY dimension, value
+            ), drift AS (
+                SELECT coalesce(a.dimension, c.dimension) AS dimension, coalesce(a.value, c.value) AS value,
+                       coalesce(a.count, 0) - coalesce(c.count, 0) AS delta
+                FROM summed a
+                FULL JOIN user_aggregate_counts c ON c.dimension = a.dimension AND c.value = a.value
+                WHERE coalesce(a.count, 0) <> coalesce(c.count, 0)
+            ), corrected AS (
+                INSERT INTO user_aggregate_counts AS c (dimension, value, count)
+                SELECT dimension, value, delta FROM drift
+                ON CONFLICT (dimension, value) DO UPDATE SET count = c.count + EXCLUDED.count
+                RETURNING 1
+            )
+            SELECT count(*) FROM corrected
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserAggregateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long countTotal() {
+        List<Long> rows = jdbcTemplate.queryForList(TOTAL_SQL, Long.class);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+
+    /** Non-zero counts for {@code dimension}, largest first. */
+    public List<UserCount> findCounts(UserCountDimension dimension) {
+        return jdbcTemplate.query(COUNTS_SQL, (rs, rowNum) -> {
+            String value = rs.getString("value");
+            return new UserCount(value.isEmpty() ? null : value, rs.getLong("count"));
+        }, dimension.getKey());
+    }
+
+    /**
+     * Recounts every dimension from {@code qorelabs_users} and corrects counters that drifted (rows
+     * the trigger missed, e.g. while it was disabled or before a manual data fix). Writers are never
+     * blocked; a run that finds another node reconciling does nothing.
+     *
+     * @return number of counter rows that were wrong
+     */
+    @Transactional
+    public long reconcile() {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(RECONCILE_LOCK_SQL, Boolean.class))) {
+            return 0;
+        }
+        Long drifted = jdbcTemplate.queryForObject(RECONCILE_SQL, Long.class);
+        return drifted == null ? 0 : drifted;
+    }
+}
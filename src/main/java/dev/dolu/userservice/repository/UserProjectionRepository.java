@@ -0,0 +1,398 @@
+package dev.dolu.userservice.repository;
+
+import dev.dolu.userservice.models.AuthProvider;
+import dev.dolu.userservice.models.BusinessType;
+import dev.dolu.userservice.models.OnboardingFeature;
+import dev.dolu.userservice.models.PayoutInfo;
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserBookingSettingsView;
+import dev.dolu.userservice.models.UserContactView;
+import dev.dolu.userservice.models.UserDTO;
+import dev.dolu.userservice.models.UserDetailsView;
+import dev.dolu.userservice.models.UserFieldSet;
+import dev.dolu.userservice.models.UserIntention;
+import dev.dolu.userservice.models.UserSummaryView;
+import dev.dolu.userservice.models.VisitDuration;
+import dev.dolu.userservice.utils.EnumUtils;
+import dev.dolu.userservice.utils.KeysetCursor;
+import dev.dolu.userservice.utils.KeysetPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Read models over {@code qorelabs_users} fetched with plain SQL: only the columns a caller needs,
+ * collection tables folded in with {@code array_agg}, and no entities, so no persistence context,
+ * dirty checking or lazy loads. Writes stay on {@link UserRepository}.
+ */
+@Repository
+public class UserProjectionRepository {
+
+    // The user's row plus its four collection tables, in one statement
+    private static final String USER_DETAILS_SELECT = """
+            SELECT u.*,
+                   (SELECT array_agg(f.listing_id) FROM user_favourites f WHERE f.user_id = u.id) AS favourite_ids,
+                   (SELECT array_agg(o.feature) FROM user_onboarding_features o WHERE o.user_id = u.id) AS feature_names,
+                   (SELECT array_agg(t.property_type) FROM user_preferred_property_types t WHERE t.user_id = u.id) AS property_types,
+                   (SELECT array_agg(a.amenity) FROM user_preferred_amenities a WHERE a.user_id = u.id) AS amenities
+            FROM qorelabs_users u
+            """;
+
+    private static final String USER_DETAILS_SQL = USER_DETAILS_SELECT + " WHERE u.email_normalized = ?";
+
+    private static final String FAVOURITES_BY_USERS_SQL =
+            "SELECT user_id, listing_id AS value FROM user_favourites WHERE user_id = ANY(?)";
+    private static final String FEATURES_BY_USERS_SQL =
+            "SELECT user_id, feature AS value FROM user_onboarding_features WHERE user_id = ANY(?)";
+    private static final String PROPERTY_TYPES_BY_USERS_SQL =
+            "SELECT user_id, property_type AS value FROM user_preferred_property_types WHERE user_id = ANY(?)";
+    private static final String AMENITIES_BY_USERS_SQL =
+            "SELECT user_id, amenity AS value FROM user_preferred_amenities WHERE user_id = ANY(?)";
+
+    private static final String SUMMARY_SELECT = """
+            SELECT u.id, u.username, u.first_name, u.last_name, u.profile_image, u.profile_picture, u.role,
+                   u.verified, u.city, u.country
+            FROM qorelabs_users u
+            """;
+
+    private static final String CONTACT_SELECT = """
+            SELECT u.id, u.first_name, u.last_name, u.email, u.phone_number, u.fcm_device_token,
+                   u.email_notifications_enabled, u.sms_notifications_enabled, u.push_notifications_enabled
+            FROM qorelabs_users u
+            """;
+
+    private static final String BOOKING_SETTINGS_SELECT = """
+            SELECT u.id, u.open_visitations, u.auto_accept_booking, u.auto_accept_visitation, u.visit_duration,
+                   u.buffer_time_hours, u.business_type, u.payment_verified
+            FROM qorelabs_users u
+            """;
+
+    static final String PAYOUT_COLUMNS = """
+            u.account_number, u.bank_code, u.bank_name, u.account_holder_name, u.recipient_code, u.bvn,
+            u.email_for_payouts, u.payout_verified, u.last_updated, u.currency""";
+
+    private static final String USER_DTO_COLUMNS =
+            "u.id, u.username, u.email, u.open_visitations, u.payment_verified, u.fcm_device_token, " + PAYOUT_COLUMNS;
+
+    // Matches idx_qorelabs_users_created_at_id; rows without created_at sort first
+    static final String CREATED_AT_KEY = "COALESCE(u.created_at, '-infinity'::timestamp)";
+
+    private static final String USER_DTO_FIRST_PAGE_SQL =
+            "SELECT " + USER_DTO_COLUMNS + ", " + CREATED_AT_KEY + "::text AS sort_key FROM qorelabs_users u"
+                    + " ORDER BY " + CREATED_AT_KEY + ", u.id LIMIT ?";
+
+    private static final String USER_DTO_NEXT_PAGE_SQL =
+            "SELECT " + USER_DTO_COLUMNS + ", " + CREATED_AT_KEY + "::text AS sort_key FROM qorelabs_users u"
+                    + " WHERE (" + CREATED_AT_KEY + ", u.id) > (CAST(? AS timestamp), ?)"
+                    + " ORDER BY " + CREATED_AT_KEY + ", u.id LIMIT ?";
+
+    private static final String USER_DTO_ALL_SQL =
+            "SELECT " + USER_DTO_COLUMNS + " FROM qorelabs_users u ORDER BY " + CREATED_AT_KEY + ", u.id";
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public UserProjectionRepository(JdbcTemplate jdbcTemplate,
+                                    @Value("${users.listing.stream-fetch-size:500}") int streamFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Separate template so only streaming reads use a server-side cursor of this fetch size
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(streamFetchSize);
+    }
+
+    /** Everything {@code /user-details} returns, in one round trip; null when there is no such user. */
+    public UserDetailsView findUserDetailsByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        if (normalized == null) {
+            return null;
+        }
+        List<UserDetailsView> rows = jdbcTemplate.query(USER_DETAILS_SQL, (rs, rowNum) -> mapUserDetails(rs), normalized);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Batch lookup by id, projected to {@code fields}. The whole key list is bound as one array
+     * parameter ({@code = ANY(?)}), so the statement text, and its cached plan, is the same for any
+     * batch size. Unknown ids are skipped.
+     */
+    public List<?> findByIds(Collection<UUID> ids, UserFieldSet fields) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return findByKeys("u.id", "uuid", ids.toArray(), fields);
+    }
+
+    /** Same as {@link #findByIds} keyed by email (matched case-insensitively via {@code email_normalized}). */
+    public List<?> findByEmails(Collection<String> emails, UserFieldSet fields) {
+        Object[] normalized = emails.stream()
+                .map(User::normalizeEmail)
+                .filter(email -> email != null && !email.isEmpty())
+                .distinct()
+                .toArray();
+        if (normalized.length == 0) {
+            return List.of();
+        }
+        return findByKeys("u.email_normalized", "text", normalized, fields);
+    }
+
+    private List<?> findByKeys(String keyColumn, String keyType, Object[] keys, UserFieldSet fields) {
+        String where = " WHERE " + keyColumn + " = ANY(?)";
+        PreparedStatementSetter keyArray = ps -> ps.setArray(1, ps.getConnection().createArrayOf(keyType, keys));
+        return switch (fields) {
+            case SUMMARY -> jdbcTemplate.query(SUMMARY_SELECT + where, keyArray, (rs, rowNum) -> new UserSummaryView(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("username"),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getString("profile_image"),
+                    rs.getString("profile_picture"),
+                    EnumUtils.safeValueOf(Role.class, rs.getString("role")),
+                    rs.getBoolean("verified"),
+                    rs.getString("city"),
+                    rs.getString("country")));
+            case CONTACT -> jdbcTemplate.query(CONTACT_SELECT + where, keyArray, (rs, rowNum) -> new UserContactView(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getString("email"),
+                    rs.getString("phone_number"),
+                    rs.getString("fcm_device_token"),
+                    rs.getBoolean("email_notifications_enabled"),
+                    rs.getBoolean("sms_notifications_enabled"),
+                    rs.getBoolean("push_notifications_enabled")));
+            case BOOKING_SETTINGS -> jdbcTemplate.query(BOOKING_SETTINGS_SELECT + where, keyArray, (rs, rowNum) -> new UserBookingSettingsView(
+                    rs.getObject("id", UUID.class),
+                    rs.getBoolean("open_visitations"),
+                    rs.getBoolean("auto_accept_booking"),
+                    rs.getBoolean("auto_accept_visitation"),
+                    EnumUtils.safeValueOf(VisitDuration.class, rs.getString("visit_duration")),
+                    rs.getInt("buffer_time_hours"),
+                    EnumUtils.safeValueOf(BusinessType.class, rs.getString("business_type")),
+                    rs.getBoolean("payment_verified")));
+            case FULL -> jdbcTemplate.query(USER_DETAILS_SELECT + where, keyArray, (rs, rowNum) -> mapUserDetails(rs));
+        };
+    }
+
+    /** Favourite listing ids of each of {@code userIds}, in one statement; users without any are absent. */
+    public Map<UUID, List<UUID>> findFavouritesByUserIds(Collection<UUID> userIds) {
+        return collectionByUser(FAVOURITES_BY_USERS_SQL, userIds, value -> UUID.fromString(value));
+    }
+
+    public Map<UUID, List<OnboardingFeature>> findCompletedFeaturesByUserIds(Collection<UUID> userIds) {
+        return collectionByUser(FEATURES_BY_USERS_SQL, userIds, value -> EnumUtils.safeValueOf(OnboardingFeature.class, value));
+    }
+
+    public Map<UUID, List<String>> findPreferredPropertyTypesByUserIds(Collection<UUID> userIds) {
+        return collectionByUser(PROPERTY_TYPES_BY_USERS_SQL, userIds, value -> value);
+    }
+
+    public Map<UUID, List<String>> findPreferredAmenitiesByUserIds(Collection<UUID> userIds) {
+        return collectionByUser(AMENITIES_BY_USERS_SQL, userIds, value -> value);
+    }
+
+    private <T> Map<UUID, List<T>> collectionByUser(String sql, Collection<UUID> userIds, Function<String, T> convert) {
+        Map<UUID, List<T>> byUser = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return byUser;
+        }
+        Object[] ids = userIds.toArray();
+        jdbcTemplate.query(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)), rs -> {
+            T value = convert.apply(rs.getString("value"));
+            if (value != null) {
+                byUser.computeIfAbsent(rs.getObject("user_id", UUID.class), id -> new ArrayList<>()).add(value);
+            }
+        });
+        return byUser;
+    }
+
+    /**
+     * One page of {@link UserDTO}s ordered by {@code (created_at, id)}, starting after {@code cursor}
+     * (null for the first page). An index range scan whatever the page's position.
+     *
+     * @throws IllegalArgumentException if {@code cursor} is malformed
+     */
+    public KeysetPage<UserDTO> findUserDtoPage(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<String> sortKeys = new ArrayList<>(pageSize + 1);
+        List<UserDTO> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = jdbcTemplate.query(USER_DTO_FIRST_PAGE_SQL, (rs, rowNum) -> {
+                sortKeys.add(rs.getString("sort_key"));
+                return mapUserDto(rs);
+            }, pageSize + 1);
+        } else {
+            KeysetCursor after = KeysetCursor.decodeTimestamp(cursor);
+            rows = jdbcTemplate.query(USER_DTO_NEXT_PAGE_SQL, (rs, rowNum) -> {
+                sortKeys.add(rs.getString("sort_key"));
+                return mapUserDto(rs);
+            }, after.sortKey(), after.id(), pageSize + 1);
+        }
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        UserDTO last = rows.get(pageSize - 1);
+        return new KeysetPage<>(rows.subList(0, pageSize),
+                new KeysetCursor(sortKeys.get(pageSize - 1), last.getId()).encode());
+    }
+
+    /**
+     * Hands every user to {@code sink} as a {@link UserDTO}, in {@code (created_at, id)} order, while
+     * the rows are read through a cursor of {@code users.listing.stream-fetch-size} rows. Only one
+     * fetch is held in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamUserDtos(Consumer<UserDTO> sink) {
+        try (Stream<UserDTO> users = streamingJdbcTemplate.queryForStream(USER_DTO_ALL_SQL, (rs, rowNum) -> mapUserDto(rs))) {
+            users.forEach(sink);
+        }
+    }
+
+    private static UserDTO mapUserDto(ResultSet rs) throws SQLException {
+        return new UserDTO(
+                rs.getObject("id", UUID.class),
+                rs.getString("username"),
+                rs.getString("email"),
+                payoutInfo(rs),
+                rs.getBoolean("open_visitations"),
+                rs.getBoolean("payment_verified"),
+                rs.getString("fcm_device_token"));
+    }
+
+    private static UserDetailsView mapUserDetails(ResultSet rs) throws SQLException {
+        return new UserDetailsView(
+                rs.getObject("id", UUID.class),
+                rs.getString("email"),
+                EnumUtils.safeValueOf(Role.class, rs.getString("role")),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("username"),
+                rs.getString("profile_image"),
+                rs.getString("phone_number"),
+                rs.getBoolean("verified"),
+                rs.getBoolean("enabled"),
+                rs.getString("city"),
+                rs.getString("country"),
+                rs.getObject("date_of_birth", LocalDate.class),
+                rs.getString("profession"),
+                rs.getString("active_plan"),
+                uuids(rs.getArray("favourite_ids")),
+                EnumUtils.safeValueOf(UserIntention.class, rs.getString("intention")),
+                rs.getString("profile_description"),
+                rs.getString("profile_picture"),
+                rs.getObject("updated_at", LocalDateTime.class),
+                rs.getBoolean("open_visitations"),
+                rs.getBoolean("payment_verified"),
+                rs.getString("fcm_device_token"),
+                rs.getObject("last_login", LocalDateTime.class),
+                rs.getBoolean("profile_completed"),
+                rs.getBoolean("onboarding_completed"),
+                rs.getString("subscription_plan"),
+                rs.getBoolean("subscription_active"),
+                rs.getObject("total_earnings", Double.class),
+                features(rs.getArray("feature_names")),
+                EnumUtils.safeValueOf(BusinessType.class, rs.getString("business_type")),
+                EnumUtils.safeValueOf(VisitDuration.class, rs.getString("visit_duration")),
+                rs.getBoolean("auto_accept_booking"),
+                rs.getBoolean("auto_accept_visitation"),
+                rs.getBoolean("email_notifications_enabled"),
+                rs.getBoolean("sms_notifications_enabled"),
+                rs.getBoolean("push_notifications_enabled"),
+                rs.getInt("buffer_time_hours"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("version", Long.class),
+                EnumUtils.safeValueOf(AuthProvider.class, rs.getString("auth_provider")),
+                payoutInfo(rs),
+                rs.getObject("search_radius", Integer.class),
+                rs.getObject("price_alerts", Boolean.class),
+                rs.getObject("new_listing_alerts", Boolean.class),
+                rs.getObject("visit_reminders", Boolean.class),
+                rs.getObject("auto_save_searches", Boolean.class),
+                rs.getObject("max_budget", Double.class),
+                strings(rs.getArray("property_types")),
+                strings(rs.getArray("amenities")));
+    }
+
+    // Mirrors Hibernate's embeddable handling: all payout columns null means no payout info
+    static PayoutInfo payoutInfo(ResultSet rs) throws SQLException {
+        String accountNumber = rs.getString("account_number");
+        String bankCode = rs.getString("bank_code");
+        String bankName = rs.getString("bank_name");
+        String accountHolderName = rs.getString("account_holder_name");
+        String recipientCode = rs.getString("recipient_code");
+        String bvn = rs.getString("bvn");
+        String emailForPayouts = rs.getString("email_for_payouts");
+        Boolean verified = rs.getObject("payout_verified", Boolean.class);
+        LocalDateTime lastUpdated = rs.getObject("last_updated", LocalDateTime.class);
+        String currency = rs.getString("currency");
+        if (accountNumber == null && bankCode == null && bankName == null && accountHolderName == null
+                && recipientCode == null && bvn == null && emailForPayouts == null && verified == null
+                && lastUpdated == null && currency == null) {
+            return null;
+        }
+        PayoutInfo payoutInfo = new PayoutInfo();
+        payoutInfo.setAccountNumber(accountNumber);
+        payoutInfo.setBankCode(bankCode);
+        payoutInfo.setBankName(bankName);
+        payoutInfo.setAccountHolderName(accountHolderName);
+        payoutInfo.setRecipientCode(recipientCode);
+        payoutInfo.setBvn(bvn);
+        payoutInfo.setEmailForPayouts(emailForPayouts);
+        payoutInfo.setVerified(Boolean.TRUE.equals(verified));
+        payoutInfo.setLastUpdated(lastUpdated);
+        payoutInfo.setCurrency(currency);
+        return payoutInfo;
+    }
+
+    static List<UUID> uuids(Array array) throws SQLException {
+        List<UUID> result = new ArrayList<>();
+        if (array != null) {
+            for (Object element : (Object[]) array.getArray()) {
+                result.add(element instanceof UUID uuid ? uuid : UUID.fromString(element.toString()));
+            }
+        }
+        return result;
+    }
+
+    static List<String> strings(Array array) throws SQLException {
+        List<String> result = new ArrayList<>();
+        if (array != null) {
+            for (Object element : (Object[]) array.getArray()) {
+                result.add((String) element);
+            }
+        }
+        return result;
+    }
+
+    static Set<OnboardingFeature> features(Array array) throws SQLException {
+        Set<OnboardingFeature> result = EnumSet.noneOf(OnboardingFeature.class);
+        for (String name : strings(array)) {
+            OnboardingFeature feature = EnumUtils.safeValueOf(OnboardingFeature.class, name);
+            if (feature != null) {
+                result.add(feature);
+            }
+        }
+        return result;
+    }
+}
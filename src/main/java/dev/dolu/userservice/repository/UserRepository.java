@@ -2,15 +2,24 @@ package dev.dolu.userservice.repository;
 
 import dev.dolu.userservice.models.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
 
-    // Find by Email
-    User findByEmail(String email);
+    // Find by Email (any casing / surrounding whitespace; one probe on the normalized-email index)
+    default User findByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        return normalized == null ? null : findByEmailNormalized(normalized);
+    }
+
+    User findByEmailNormalized(String emailNormalized);
 
     // Find by Username
     User findByUsername(String username);
@@ -21,16 +30,24 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     // Check if Username exists
     boolean existsByUsername(String username);
 
-    // Check if Email exists
-    boolean existsByEmail(String email);
+    // Check if Email exists (normalized, like findByEmail)
+    default boolean existsByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        return normalized != null && existsByEmailNormalized(normalized);
+    }
+
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    // Just the enabled flag (null when no such account), for the JWT filter's status check
+    @Query("SELECT u.enabled FROM User u WHERE u.emailNormalized = :email")
+    Boolean findEnabledByEmailNormalized(@Param("email") String emailNormalized);
 
     // Check if Phone Number exists
     boolean existsByPhoneNumber(String phoneNumber);
 
-    // Search by partial match across fields (for admin use)
-    List<User> findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCaseOrFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(
-            String username, String email, String firstName, String lastName
-    );
+    // All usernames starting with a LIKE pattern (caller escapes wildcards); served by the prefix index
+    @Query(value = "SELECT username FROM qorelabs_users WHERE username LIKE :pattern ESCAPE '\\'", nativeQuery = true)
+    List<String> findUsernamesLike(@Param("pattern") String pattern);
 
     // Filter by Role
     List<User> findByRole(Role role);
@@ -46,4 +63,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     // Sort all users by latest created
     List<User> findAllByOrderByCreatedAtDesc();
-}
\ No newline at end of file
+
+    // Swap the password hash only if it is still the one we verified against (no version bump)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(@Param("id") UUID id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+}
@@ -0,0 +1,215 @@
+package dev.dolu.userservice.repository;
+
+import dev.dolu.userservice.models.AuthProvider;
+import dev.dolu.userservice.models.BusinessType;
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserConnection;
+import dev.dolu.userservice.models.UserIntention;
+import dev.dolu.userservice.models.VisitDuration;
+import dev.dolu.userservice.utils.EnumUtils;
+import dev.dolu.userservice.utils.KeysetCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Loads pages of users with only the columns a GraphQL selection asks for. Each scalar field of the GraphQL
+ * {@code User} type maps to its column(s); the rows become detached {@link User} objects with just
+ * those properties set. Collection fields map to no column at all: they are resolved by the batch
+ * loaders in {@code GraphqlController}, and only when selected.
+ */
+@Repository
+public class UserSelectionRepository {
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        void read(ResultSet rs, User user) throws SQLException;
+    }
+
+    private record Column(String sql, ColumnReader reader) {
+    }
+
+    private static final Map<String, Column> COLUMNS = Map.ofEntries(
+            Map.entry("firstName", new Column("u.first_name", (rs, u) -> u.setFirstName(rs.getString("first_name")))),
+            Map.entry("lastName", new Column("u.last_name", (rs, u) -> u.setLastName(rs.getString("last_name")))),
+            Map.entry("username", new Column("u.username", (rs, u) -> u.setUsername(rs.getString("username")))),
+            Map.entry("phoneNumber", new Column("u.phone_number", (rs, u) -> u.setPhoneNumber(rs.getString("phone_number")))),
+            Map.entry("email", new Column("u.email", (rs, u) -> u.setEmail(rs.getString("email")))),
+            Map.entry("profession", new Column("u.profession", (rs, u) -> u.setProfession(rs.getString("profession")))),
+            Map.entry("city", new Column("u.city", (rs, u) -> u.setCity(rs.getString("city")))),
+            Map.entry("country", new Column("u.country", (rs, u) -> u.setCountry(rs.getString("country")))),
+            Map.entry("dateOfBirth", new Column("u.date_of_birth", (rs, u) -> u.setDateOfBirth(rs.getObject("date_of_birth", LocalDate.class)))),
+            Map.entry("role", new Column("u.role", (rs, u) -> u.setRole(EnumUtils.safeValueOf(Role.class, rs.getString("role"))))),
+            Map.entry("enabled", new Column("u.enabled", (rs, u) -> u.setEnabled(rs.getBoolean("enabled")))),
+            Map.entry("verified", new Column("u.verified", (rs, u) -> u.setVerified(rs.getBoolean("verified")))),
+            Map.entry("authProvider", new Column("u.auth_provider", (rs, u) -> u.setAuthProvider(EnumUtils.safeValueOf(AuthProvider.class, rs.getString("auth_provider"))))),
+            Map.entry("profileImage", new Column("u.profile_image", (rs, u) -> u.setProfileImage(rs.getString("profile_image")))),
+            Map.entry("activePlan", new Column("u.active_plan", (rs, u) -> u.setActivePlan(rs.getString("active_plan")))),
+            Map.entry("createdAt", new Column("u.created_at", (rs, u) -> u.setCreatedAt(rs.getObject("created_at", LocalDateTime.class)))),
+            Map.entry("updatedAt", new Column("u.updated_at", (rs, u) -> u.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class)))),
+            Map.entry("lastLogin", new Column("u.last_login", (rs, u) -> u.setLastLogin(rs.getObject("last_login", LocalDateTime.class)))),
+            Map.entry("profileCompleted", new Column("u.profile_completed", (rs, u) -> u.setProfileCompleted(rs.getBoolean("profile_completed")))),
+            Map.entry("onboardingCompleted", new Column("u.onboarding_completed", (rs, u) -> u.setOnboardingCompleted(rs.getBoolean("onboarding_completed")))),
+            Map.entry("subscriptionPlan", new Column("u.subscription_plan", (rs, u) -> u.setSubscriptionPlan(rs.getString("subscription_plan")))),
+            Map.entry("subscriptionActive", new Column("u.subscription_active", (rs, u) -> u.setSubscriptionActive(rs.getBoolean("subscription_active")))),
+            Map.entry("intention", new Column("u.intention", (rs, u) -> u.setIntention(EnumUtils.safeValueOf(UserIntention.class, rs.getString("intention"))))),
+            Map.entry("profileDescription", new Column("u.profile_description", (rs, u) -> u.setProfileDescription(rs.getString("profile_description")))),
+            Map.entry("profilePicture", new Column("u.profile_picture", (rs, u) -> u.setProfilePicture(rs.getString("profile_picture")))),
+            Map.entry("payoutInfo", new Column(UserProjectionRepository.PAYOUT_COLUMNS, (rs, u) -> u.setPayoutInfo(UserProjectionRepository.payoutInfo(rs)))),
+            Map.entry("totalEarnings", new Column("u.total_earnings", (rs, u) -> u.setTotalEarnings(rs.getObject("total_earnings", Double.class)))),
+            Map.entry("openVisitations", new Column("u.open_visitations", (rs, u) -> u.setOpenVisitations(rs.getBoolean("open_visitations")))),
+            Map.entry("paymentVerified", new Column("u.payment_verified", (rs, u) -> u.setPaymentVerified(rs.getBoolean("payment_verified")))),
+            Map.entry("version", new Column("u.version", (rs, u) -> u.setVersion(rs.getObject("version", Long.class)))),
+            Map.entry("emailNotificationsEnabled", new Column("u.email_notifications_enabled", (rs, u) -> u.setEmailNotificationsEnabled(rs.getBoolean("email_notifications_enabled")))),
+            Map.entry("smsNotificationsEnabled", new Column("u.sms_notifications_enabled", (rs, u) -> u.setSmsNotificationsEnabled(rs.getBoolean("sms_notifications_enabled")))),
+            Map.entry("pushNotificationsEnabled", new Column("u.push_notifications_enabled", (rs, u) -> u.setPushNotificationsEnabled(rs.getBoolean("push_notifications_enabled")))),
+            Map.entry("fcmDeviceToken", new Column("u.fcm_device_token", (rs, u) -> u.setFcmDeviceToken(rs.getString("fcm_device_token")))),
+            Map.entry("bufferTimeHours", new Column("u.buffer_time_hours", (rs, u) -> u.setBufferTimeHours(rs.getInt("buffer_time_hours")))),
+            Map.entry("searchRadius", new Column("u.search_radius", (rs, u) -> u.setSearchRadius(rs.getObject("search_radius", Integer.class)))),
+            Map.entry("priceAlerts", new Column("u.price_alerts", (rs, u) -> u.setPriceAlerts(rs.getObject("price_alerts", Boolean.class)))),
+            Map.entry("newListingAlerts", new Column("u.new_listing_alerts", (rs, u) -> u.setNewListingAlerts(rs.getObject("new_listing_alerts", Boolean.class)))),
+            Map.entry("visitReminders", new Column("u.visit_reminders", (rs, u) -> u.setVisitReminders(rs.getObject("visit_reminders", Boolean.class)))),
+            Map.entry("autoSaveSearches", new Column("u.auto_save_searches", (rs, u) -> u.setAutoSaveSearches(rs.getObject("auto_save_searches", Boolean.class)))),
+            Map.entry("maxBudget", new Column("u.max_budget", (rs, u) -> u.setMaxBudget(rs.getObject("max_budget", Double.class)))),
+            Map.entry("businessType", new Column("u.business_type", (rs, u) -> u.setBusinessType(EnumUtils.safeValueOf(BusinessType.class, rs.getString("business_type"))))),
+            Map.entry("visitDuration", new Column("u.visit_duration", (rs, u) -> u.setVisitDuration(EnumUtils.safeValueOf(VisitDuration.class, rs.getString("visit_duration"))))),
+            Map.entry("autoAcceptBooking", new Column("u.auto_accept_booking", (rs, u) -> u.setAutoAcceptBooking(rs.getBoolean("auto_accept_booking")))),
+            Map.entry("autoAcceptVisitation", new Column("u.auto_accept_visitation", (rs, u) -> u.setAutoAcceptVisitation(rs.getBoolean("auto_accept_visitation"))))
+    );
+
+    // Same expression as idx_qorelabs_users_created_at_id and the per-filter indexes in V1_18
+    private static final String SORT_KEY = UserProjectionRepository.CREATED_AT_KEY;
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxSearchResults;
+
+    public UserSelectionRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${users.search.max-results:100}") int maxSearchResults) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxSearchResults = maxSearchResults;
+    }
+
+    /**
+     * One keyset page of users matching {@code filter}, in {@code (created_at, id)} order (newest
+     * first when {@code descending}), starting after {@code after} (null for the first page).
+     * {@code filter} is a SQL predicate with {@code ?} placeholders for {@code params}, or null; it
+     * must be a constant, never built from user input. Fields without a column (collections,
+     * {@code __typename}, {@code id}) are ignored. Never uses OFFSET, so deep pages cost the same as
+     * the first one.
+     */
+    public UserConnection selectPage(Collection<String> fields, String filter, List<Object> params,
+                                     KeysetCursor after, boolean descending, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Set<Column> columns = columnsFor(fields);
+        List<Object> args = new ArrayList<>(params);
+
+        StringBuilder sql = selectList(columns).append(", ").append(SORT_KEY)
+                .append("::text AS sort_key FROM qorelabs_users u");
+        List<String> conditions = new ArrayList<>(2);
+        if (filter != null) {
+            conditions.add("(" + filter + ")");
+        }
+        if (after != null) {
+            conditions.add("(" + SORT_KEY + ", u.id) " + (descending ? "<" : ">") + " (CAST(? AS timestamp), ?)");
+            args.add(after.sortKey());
+            args.add(after.id());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ").append(SORT_KEY).append(direction).append(", u.id").append(direction).append(" LIMIT ?");
+        args.add(pageSize + 1);
+        return page(columns, sql.toString(), args, pageSize, after != null);
+    }
+
+    /**
+     * Fuzzy search over username, email and names, best match first. A row matches when the query is
+     * a substring of its {@code search_text} or word-similar to part of it ({@code pg_trgm}'s
+     * {@code <%}); both are answered by the trigram GIN index. Rows are ranked by
+     * {@code word_similarity} and continued by keyset over {@code (rank, id)}. Pages are capped at
+     * {@code users.search.max-results}.
+     */
+    public UserConnection searchPage(Collection<String> fields, String query, KeysetCursor after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxSearchResults));
+        String term = query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            return new UserConnection(List.of(), new UserConnection.PageInfo(false, after != null, null, null));
+        }
+        Set<Column> columns = columnsFor(fields);
+        List<Object> args = new ArrayList<>(List.of(term, "%" + escapeLike(term) + "%", term));
+
+        StringBuilder sql = selectList(columns).append(", r.rank::text AS sort_key FROM qorelabs_users u")
+                .append(" CROSS JOIN LATERAL (SELECT word_similarity(?, u.search_text) AS rank) r")
+                .append(" WHERE (u.search_text LIKE ? OR ? <% u.search_text)");
+        if (after != null) {
+            sql.append(" AND (r.rank, u.id) < (CAST(? AS real), ?)");
+            args.add(after.sortKey());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY r.rank DESC, u.id DESC LIMIT ?");
+        args.add(pageSize + 1);
+        return page(columns, sql.toString(), args, pageSize, after != null);
+    }
+
+    private static StringBuilder selectList(Set<Column> columns) {
+        StringBuilder sql = new StringBuilder("SELECT u.id");
+        for (Column column : columns) {
+            sql.append(", ").append(column.sql());
+        }
+        return sql;
+    }
+
+    // Runs a query selecting pageSize + 1 rows with a sort_key column, and turns it into a connection
+    private UserConnection page(Set<Column> columns, String sql, List<Object> args, int pageSize, boolean hasPreviousPage) {
+        List<UserConnection.Edge> edges = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            User user = new User();
+            user.setId(rs.getObject("id", UUID.class));
+            for (Column column : columns) {
+                column.reader().read(rs, user);
+            }
+            return new UserConnection.Edge(new KeysetCursor(rs.getString("sort_key"), user.getId()).encode(), user);
+        }, args.toArray());
+
+        boolean hasNextPage = edges.size() > pageSize;
+        if (hasNextPage) {
+            edges = edges.subList(0, pageSize);
+        }
+        String startCursor = edges.isEmpty() ? null : edges.get(0).cursor();
+        String endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor();
+        return new UserConnection(edges,
+                new UserConnection.PageInfo(hasNextPage, hasPreviousPage, startCursor, endCursor));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Set<Column> columnsFor(Collection<String> fields) {
+        Set<Column> columns = new LinkedHashSet<>();
+        for (String field : fields) {
+            Column column = COLUMNS.get(field);
+            if (column != null) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+}
@@ -28,7 +28,8 @@ public class ApiKeyFilter extends OncePerRequestFilter {
         String path = request.getRequestURI();
         return "OPTIONS".equalsIgnoreCase(request.getMethod()) ||
                 path.startsWith("/login/oauth2/") ||
-                path.startsWith("/oauth2/authorization");
+                path.startsWith("/oauth2/authorization") ||
+                path.equals("/.well-known/jwks.json");
     }
 
     @Override
@@ -0,0 +1,54 @@
+package dev.dolu.userservice.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Picks a BCrypt cost for the box the service is running on.
+ * <p>
+ * Times a few hashes at a reference cost, takes the median, and extrapolates: every +1 of cost
+ * doubles the work, so the chosen cost is the highest one whose projected verify time stays at
+ * or under the target. The result is always clamped to [minCost, maxCost].
+ */
+public final class BcryptCostCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BcryptCostCalibrator.class);
+
+    private static final int REFERENCE_COST = 8;
+    private static final int SAMPLES = 5;
+
+    private BcryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetVerifyMillis, int minCost, int maxCost) {
+        BCryptPasswordEncoder reference = new BCryptPasswordEncoder(REFERENCE_COST);
+        String hash = reference.encode("calibration-password");
+
+        // Warm-up so JIT compilation is not counted.
+        reference.matches("calibration-password", hash);
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            reference.matches("calibration-password", hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double medianMillis = samples[SAMPLES / 2] / 1_000_000.0;
+
+        int cost = REFERENCE_COST;
+        if (medianMillis > 0) {
+            double headroom = targetVerifyMillis / medianMillis;
+            cost = REFERENCE_COST + (int) Math.floor(Math.log(headroom) / Math.log(2));
+        }
+        int chosen = Math.max(minCost, Math.min(maxCost, cost));
+
+        logger.info("BCrypt calibration: cost {} took {} ms (median); target {} ms -> cost {} (projected ~{} ms)",
+                REFERENCE_COST, String.format("%.2f", medianMillis), targetVerifyMillis, chosen,
+                Math.round(medianMillis * Math.pow(2, chosen - REFERENCE_COST)));
+        return chosen;
+    }
+}
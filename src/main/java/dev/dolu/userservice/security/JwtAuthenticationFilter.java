@@ -2,13 +2,12 @@ package dev.dolu.userservice.security;
 
 import dev.dolu.userservice.metrics.CustomMetricService;
 import dev.dolu.userservice.utils.JwtUtils;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.annotation.Order;
+import dev.dolu.userservice.utils.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import jakarta.servlet.FilterChain;
@@ -16,22 +15,32 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-@Component
-@Order(2)  // Processed after the API key filter
+/**
+ * Authenticates bearer tokens from their claims alone: the signature is checked once (cached by
+ * {@link JwtUtils#verify}), the blacklist is answered by the near-cache, and the principal and role
+ * come from the {@code user} claim, so a request costs no database read. When
+ * {@code security.jwt.status-check.enabled} is set, {@link UserStatusCache} adds a TTL-bounded
+ * "account still enabled" check. Requests without a bearer token keep the API-key authentication;
+ * a bearer token that fails any check clears it, so the request continues unauthenticated.
+ * <p>
+ * Registered only inside the security chain (see {@code SecurityConfig}), after {@link ApiKeyFilter}.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
     private final Logger logger = Logger.getLogger(JwtAuthenticationFilter.class.getName());
     private final CustomMetricService customMetricService;
 
-    @Autowired
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService, CustomMetricService customMetricService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserStatusCache userStatusCache, CustomMetricService customMetricService) {
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.userStatusCache = userStatusCache;
         this.customMetricService = customMetricService;
     }
 
@@ -39,64 +48,71 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        // Temporarily bypass JWT checks for all requests
-        logger.info("JWT filter bypassed for: " + request.getRequestURI());
-        filterChain.doFilter(request, response);
-        return;
-
-        /*
         String requestPath = request.getRequestURI();
 
-        // Skip JWT authentication for public endpoints
-        if (isPublicEndpoint(requestPath)) {
+        String jwt = getJwtFromRequest(request);
+        if (jwt == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
+        // A token that fails any check leaves the request unauthenticated rather than rejecting it here:
+        // permitAll routes still work for a client holding a stale token, and SecurityConfig answers 401
+        // for the rest
+        VerifiedToken verified;
         try {
-            // Extract JWT token from Authorization header
-            String jwt = getJwtFromRequest(request);
-
-            // Check if JWT is blacklisted
-            if (jwt != null && jwtUtils.isTokenBlacklisted(jwt)) {
-                logger.log(Level.WARNING, "Attempt to use blacklisted token for request: {0}", request.getRequestURI());
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token has been invalidated.");
-                return;
-            }
-
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                // Get the username and verify it
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
-
-                // Load user details to create authentication
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (userDetails != null) {
-                    // Create authentication token and set the context
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    logger.log(Level.INFO, "Authenticated user: {0}", username);
-                } else {
-                    logger.log(Level.WARNING, "User not found for token: {0}", jwt);
-                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not found");
-                    return;
-                }
-            } else {
-                logger.log(Level.WARNING, "Invalid or expired JWT for request: {0}", request.getRequestURI());
-                customMetricService.incrementJwtValidationFailureCounter();
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "JWT is invalid or expired");
-                return;
-            }
-        } catch (Exception ex) {
-            logger.log(Level.SEVERE, "Error during JWT authentication: ", ex);
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error during authentication");
+            verified = jwtUtils.verify(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid or expired JWT for request: {0}", requestPath);
+            customMetricService.incrementJwtValidationFailureCounter();
+            continueUnauthenticated(request, response, filterChain);
+            return;
+        }
+
+        // Only access tokens are bearer credentials: refresh tokens are for /refresh-token, magic-link tokens for /magic-signin
+        if (!jwtUtils.isAccessToken(verified) || verified.subject() == null) {
+            customMetricService.incrementJwtValidationFailureCounter();
+            continueUnauthenticated(request, response, filterChain);
+            return;
+        }
+
+        if (jwtUtils.isTokenBlacklisted(jwt, verified)) {
+            logger.log(Level.WARNING, "Attempt to use blacklisted token for request: {0}", requestPath);
+            continueUnauthenticated(request, response, filterChain);
+            return;
+        }
+
+        if (userStatusCache.isEnabled() && !userStatusCache.isActive(verified.subject())) {
+            logger.log(Level.WARNING, "Token presented for a disabled or unknown account on: {0}", requestPath);
+            continueUnauthenticated(request, response, filterChain);
             return;
         }
 
+        JwtPrincipal principal = principalOf(verified);
+        List<GrantedAuthority> authorities = principal.role() != null
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.role()))
+                : List.of();
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
         filterChain.doFilter(request, response);
-        */
+    }
+
+    private static JwtPrincipal principalOf(VerifiedToken verified) {
+        if (!verified.hasUserClaim()) {
+            return new JwtPrincipal(null, verified.subject(), null);
+        }
+        Map<String, Object> user = verified.user();
+        Object id = user.get("id");
+        Object role = user.get("role");
+        UUID userId;
+        try {
+            userId = id != null ? UUID.fromString(id.toString()) : null;
+        } catch (IllegalArgumentException e) {
+            userId = null;
+        }
+        return new JwtPrincipal(userId, verified.subject(), role != null ? role.toString() : null);
     }
 
     // Helper method to extract JWT from the Authorization header
@@ -108,12 +124,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return null;
     }
 
-    // Helper method to check if the endpoint is public
-    private boolean isPublicEndpoint(String requestPath) {
-        return requestPath.equals("/health") ||
-                requestPath.startsWith("/actuator") ||
-                requestPath.equals("/favicon.ico") ||
-                requestPath.startsWith("/graphql") ||
-                requestPath.startsWith("/graphiql");
+    private static void continueUnauthenticated(HttpServletRequest request, HttpServletResponse response,
+                                                FilterChain filterChain) throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package dev.dolu.userservice.security;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * Authenticated caller as described by the access token's {@code user} claim. Built from the token
+ * alone; {@code id} and {@code role} are null for older subject-only tokens.
+ */
+public record JwtPrincipal(UUID id, String email, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.dolu.userservice.security;
+
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.utils.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Optional "is this account still enabled" check for the JWT filter. Answers are cached per
+ * normalized email for {@code ttl-ms}, so a disabled account is locked out within that bound while
+ * most requests cost no database read. Off by default: a token is then trusted until it expires
+ * or is blacklisted.
+ * <p>
+ * Committed updates and deletes of a user evict the entry on every node (via
+ * {@link #INVALIDATION_CHANNEL}), so disabling or deleting an account takes effect immediately
+ * rather than after {@code ttl-ms}.
+ */
+@Component
+public class UserStatusCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "user_status_invalidation";
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatusCache.class);
+
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean enabled;
+    private final long ttlMs;
+    private final LruCache<String, Status> statuses;
+
+    public UserStatusCache(UserRepository userRepository,
+                           RedisTemplate<String, String> redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           @Value("${security.jwt.status-check.enabled:false}") boolean enabled,
+                           @Value("${security.jwt.status-check.ttl-ms:30000}") long ttlMs,
+                           @Value("${security.jwt.status-check.size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.ttlMs = ttlMs;
+        this.statuses = new LruCache<>(maxSize);
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True if the account exists and is enabled; unknown accounts count as inactive. */
+    public boolean isActive(String email) {
+        String key = User.normalizeEmail(email);
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Status cached = statuses.get(key);
+        if (cached != null && cached.validUntil > now) {
+            return cached.active;
+        }
+        Boolean accountEnabled = userRepository.findEnabledByEmailNormalized(key);
+        boolean active = Boolean.TRUE.equals(accountEnabled);
+        statuses.put(key, new Status(active, now + ttlMs));
+        return active;
+    }
+
+    /** Drops the cached answer on every node so the next request re-reads the account. */
+    public void evict(String email) {
+        String key = User.normalizeEmail(email);
+        if (!enabled || key == null || key.isEmpty()) {
+            return;
+        }
+        statuses.remove(key);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key);
+        } catch (Exception e) {
+            logger.warn("Could not publish account status invalidation; other nodes catch up within {} ms", ttlMs, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        statuses.remove(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private record Status(boolean active, long validUntil) {
+    }
+}
@@ -20,6 +20,7 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     @Autowired private UserRepository userRepository;
     @Autowired private JwtUtils jwtUtils;
+    @Autowired private UsernameAllocator usernameAllocator;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest request) throws OAuth2AuthenticationException {
@@ -32,12 +33,6 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         String rawUsername = (String) attributes.get("login");
         String baseUsername = rawUsername != null ? rawUsername.toLowerCase() :
                 (email != null ? email.split("@")[0].toLowerCase() : "user_" + UUID.randomUUID().toString().substring(0, 6));
-        String uniqueUsername = baseUsername;
-        int suffix = 1;
-        while (userRepository.existsByUsername(uniqueUsername)) {
-            uniqueUsername = baseUsername + suffix;
-            suffix++;
-        }
 
         String rawName = (String) attributes.get("name");
         String firstName = "oauth";
@@ -54,19 +49,24 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         if (email != null) {
             User existing = userRepository.findByEmail(email);
             if (existing == null) {
-                User newUser = new User();
-                newUser.setUsername(uniqueUsername);
-                newUser.setEmail(email);
-                newUser.setFirstName(firstName);
-                newUser.setLastName(lastName);
-                newUser.setPhoneNumber("OAUTH_" + UUID.randomUUID().toString().substring(0, 8));
-                newUser.setPassword("OAUTH2_USER");
-                newUser.setEnabled(true);
-                newUser.setVerified(true);
-                newUser.setAuthProvider(AuthProvider.GOOGLE); // or GITHUB if it's GitHub
-                newUser.setProfileImage(profileImage);
-                newUser.setRole(Role.USER);
-                userRepository.save(newUser);
+                String first = firstName;
+                String last = lastName;
+                // Username is only allocated for new users; conflicts retry with the next free suffix
+                usernameAllocator.allocate(baseUsername, uniqueUsername -> {
+                    User newUser = new User();
+                    newUser.setUsername(uniqueUsername);
+                    newUser.setEmail(email);
+                    newUser.setFirstName(first);
+                    newUser.setLastName(last);
+                    newUser.setPhoneNumber("OAUTH_" + UUID.randomUUID().toString().substring(0, 8));
+                    newUser.setPassword("OAUTH2_USER");
+                    newUser.setEnabled(true);
+                    newUser.setVerified(true);
+                    newUser.setAuthProvider(AuthProvider.GOOGLE); // or GITHUB if it's GitHub
+                    newUser.setProfileImage(profileImage);
+                    newUser.setRole(Role.USER);
+                    return userRepository.saveAndFlush(newUser);
+                });
             }
         }
 
@@ -0,0 +1,108 @@
+package dev.dolu.userservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for {@code last_login}.
+ * <p>
+ * Logins only record the timestamp in memory (one entry per user, latest wins). A scheduled
+ * flush writes everything pending as one {@code UPDATE ... FROM (VALUES ...)} per chunk, touching
+ * only {@code last_login}: no full-row rewrite, no {@code @Version} bump, and therefore no
+ * optimistic-lock conflicts with concurrent profile edits. Because the version is not bumped, flushed
+ * users are dropped from {@link UserCache} explicitly. Pending entries are drained on shutdown.
+ */
+@Service
+public class LastLoginRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCache userCache;
+    private final int batchSize;
+    private final ConcurrentHashMap<UUID, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate,
+                             UserCache userCache,
+                             @Value("${users.last-login.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCache = userCache;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void record(UUID userId, LocalDateTime loggedInAt) {
+        if (userId == null || loggedInAt == null) {
+            return;
+        }
+        pending.merge(userId, loggedInAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /** Most recent login not yet flushed, if any; lets reads overlay the buffered value. */
+    public LocalDateTime pendingFor(UUID userId) {
+        return userId == null ? null : pending.get(userId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${users.last-login.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, LocalDateTime>> batch = new ArrayList<>(pending.size());
+        for (UUID userId : pending.keySet()) {
+            LocalDateTime loggedInAt = pending.remove(userId);
+            if (loggedInAt != null) {
+                batch.add(Map.entry(userId, loggedInAt));
+            }
+        }
+
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<Map.Entry<UUID, LocalDateTime>> chunk = batch.subList(from, Math.min(batch.size(), from + batchSize));
+            try {
+                writeChunk(chunk);
+                userCache.invalidateAll(chunk.stream().map(Map.Entry::getKey).toList());
+            } catch (Exception e) {
+                logger.error("Failed to flush {} last-login updates; re-queueing", chunk.size(), e);
+                chunk.forEach(entry -> record(entry.getKey(), entry.getValue()));
+            }
+        }
+        logger.debug("Flushed {} last-login updates", batch.size());
+    }
+
+    private void writeChunk(List<Map.Entry<UUID, LocalDateTime>> chunk) {
+        StringBuilder sql = new StringBuilder("UPDATE qorelabs_users u SET last_login = v.last_login FROM (VALUES ");
+        Object[] args = new Object[chunk.size() * 2];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS uuid), CAST(? AS timestamp))");
+            args[i * 2] = chunk.get(i).getKey();
+            args[i * 2 + 1] = Timestamp.valueOf(chunk.get(i).getValue());
+        }
+        sql.append(") AS v(id, last_login) WHERE u.id = v.id AND (u.last_login IS NULL OR u.last_login < v.last_login)");
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    @PreDestroy
+    public void drain() {
+        logger.info("Draining {} pending last-login updates", pending.size());
+        flush();
+    }
+}
@@ -0,0 +1,231 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.utils.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sliding-window throttle for password logins, keyed per email and per client IP.
+ * <p>
+ * Each key holds the timestamps of recent failures (a Redis sorted set trimmed to the window).
+ * Once a key reaches its threshold, further attempts are refused until
+ * {@code lastFailure + base * 2^(failures - threshold)} (capped), so a credential-stuffing wave is
+ * turned away before the user lookup and before any BCrypt work. A successful login clears the
+ * email key. When Redis is unreachable the same rules run against a bounded in-process map.
+ */
+@Service
+public class LoginThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottle.class);
+
+    private static final String EMAIL_KEY_PREFIX = "login_throttle:email:";
+    private static final String IP_KEY_PREFIX = "login_throttle:ip:";
+
+    // KEYS = failure sets; ARGV = now, window, base backoff, max backoff, then one threshold per key.
+    // Returns the longest remaining block in ms (0 = allowed) and the index (1-based) of that key.
+    private static final DefaultRedisScript<List> CHECK_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local base = tonumber(ARGV[3])
+            local cap = tonumber(ARGV[4])
+            local worst, worstKey = 0, 0
+            for i, key in ipairs(KEYS) do
+              redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+              local threshold = tonumber(ARGV[4 + i])
+              local count = redis.call('ZCARD', key)
+              if count >= threshold then
+                local last = redis.call('ZRANGE', key, -1, -1, 'WITHSCORES')
+                local delay = math.min(cap, base * 2 ^ (count - threshold))
+                local remaining = math.floor(tonumber(last[2]) + delay - now)
+                if remaining > worst then
+                  worst, worstKey = remaining, i
+                end
+              end
+            end
+            return {worst, worstKey}
+            """, List.class);
+
+    // KEYS = failure sets; ARGV = now, member, ttl ms
+    private static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>("""
+            for _, key in ipairs(KEYS) do
+              redis.call('ZADD', key, ARGV[1], ARGV[2])
+              redis.call('PEXPIRE', key, ARGV[3])
+            end
+            return #KEYS
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final CustomMetricService customMetricService;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int emailThreshold;
+    private final int ipThreshold;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final LruCache<String, Deque<Long>> localFailures;
+
+    public LoginThrottle(RedisTemplate<String, String> redisTemplate,
+                         CustomMetricService customMetricService,
+                         @Value("${auth.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${auth.login-throttle.window-seconds:900}") long windowSeconds,
+                         @Value("${auth.login-throttle.email-threshold:5}") int emailThreshold,
+                         @Value("${auth.login-throttle.ip-threshold:50}") int ipThreshold,
+                         @Value("${auth.login-throttle.base-backoff-ms:1000}") long baseBackoffMs,
+                         @Value("${auth.login-throttle.max-backoff-ms:900000}") long maxBackoffMs,
+                         @Value("${auth.login-throttle.fallback-cache-size:10000}") int fallbackCacheSize) {
+        this.redisTemplate = redisTemplate;
+        this.customMetricService = customMetricService;
+        this.enabled = enabled;
+        this.windowMs = windowSeconds * 1000;
+        this.emailThreshold = Math.max(1, emailThreshold);
+        this.ipThreshold = Math.max(1, ipThreshold);
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.localFailures = new LruCache<>(fallbackCacheSize);
+    }
+
+    /**
+     * Throws {@link LoginThrottledException} if either the email or the IP is currently blocked.
+     * One Redis round trip; call it before looking the user up or verifying the password.
+     */
+    public void checkAllowed(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        List<String> keys = keysFor(email, clientIp);
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long remainingMs;
+        int blockedKey;
+        try {
+            Object[] args = new Object[4 + keys.size()];
+            args[0] = String.valueOf(now);
+            args[1] = String.valueOf(windowMs);
+            args[2] = String.valueOf(baseBackoffMs);
+            args[3] = String.valueOf(maxBackoffMs);
+            for (int i = 0; i < keys.size(); i++) {
+                args[4 + i] = String.valueOf(thresholdFor(keys.get(i)));
+            }
+            List<?> result = redisTemplate.execute(CHECK_SCRIPT, keys, args);
+            remainingMs = ((Number) result.get(0)).longValue();
+            blockedKey = ((Number) result.get(1)).intValue() - 1;
+        } catch (Exception e) {
+            logger.warn("Login throttle check fell back to in-process state: {}", e.getMessage());
+            customMetricService.incrementLoginThrottleFallbackCounter();
+            remainingMs = 0;
+            blockedKey = -1;
+            for (int i = 0; i < keys.size(); i++) {
+                long remaining = localRemainingMs(keys.get(i), now);
+                if (remaining > remainingMs) {
+                    remainingMs = remaining;
+                    blockedKey = i;
+                }
+            }
+        }
+
+        if (remainingMs > 0 && blockedKey >= 0) {
+            String scope = keys.get(blockedKey).startsWith(EMAIL_KEY_PREFIX) ? "email" : "ip";
+            customMetricService.incrementLoginBlockedCounter(scope);
+            logger.warn("Login throttled by {} for another {} ms", scope, remainingMs);
+            throw new LoginThrottledException(Math.max(1, (remainingMs + 999) / 1000));
+        }
+    }
+
+    /** Counts a failed attempt (bad password, unknown email, or unverified account) against both keys. */
+    public void recordFailure(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        List<String> keys = keysFor(email, clientIp);
+        if (keys.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.execute(RECORD_SCRIPT, keys,
+                    String.valueOf(now),
+                    now + ":" + UUID.randomUUID(),
+                    String.valueOf(windowMs + maxBackoffMs));
+        } catch (Exception e) {
+            logger.warn("Login throttle failure recorded in-process only: {}", e.getMessage());
+            customMetricService.incrementLoginThrottleFallbackCounter();
+            synchronized (localFailures) {
+                for (String key : keys) {
+                    Deque<Long> failures = localFailures.get(key);
+                    if (failures == null) {
+                        failures = new ArrayDeque<>();
+                        localFailures.put(key, failures);
+                    }
+                    failures.addLast(now);
+                }
+            }
+        }
+    }
+
+    /** Clears the email's failure history after a successful login; the IP history is kept. */
+    public void recordSuccess(String email) {
+        if (!enabled) {
+            return;
+        }
+        String normalized = User.normalizeEmail(email);
+        if (normalized == null || normalized.isEmpty()) {
+            return;
+        }
+        String key = EMAIL_KEY_PREFIX + normalized;
+        localFailures.remove(key);
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            logger.warn("Could not clear login throttle for email: {}", e.getMessage());
+        }
+    }
+
+    private long localRemainingMs(String key, long now) {
+        synchronized (localFailures) {
+            Deque<Long> failures = localFailures.get(key);
+            if (failures == null) {
+                return 0;
+            }
+            while (!failures.isEmpty() && failures.peekFirst() <= now - windowMs) {
+                failures.pollFirst();
+            }
+            int threshold = thresholdFor(key);
+            if (failures.size() < threshold) {
+                return 0;
+            }
+            double delay = Math.min(maxBackoffMs, baseBackoffMs * Math.pow(2, failures.size() - threshold));
+            return Math.max(0, (long) (failures.peekLast() + delay - now));
+        }
+    }
+
+    private int thresholdFor(String key) {
+        return key.startsWith(EMAIL_KEY_PREFIX) ? emailThreshold : ipThreshold;
+    }
+
+    private static List<String> keysFor(String email, String clientIp) {
+        String normalized = User.normalizeEmail(email);
+        boolean hasEmail = normalized != null && !normalized.isEmpty();
+        boolean hasIp = clientIp != null && !clientIp.isBlank();
+        if (hasEmail && hasIp) {
+            return List.of(EMAIL_KEY_PREFIX + normalized, IP_KEY_PREFIX + clientIp);
+        }
+        if (hasEmail) {
+            return List.of(EMAIL_KEY_PREFIX + normalized);
+        }
+        return hasIp ? List.of(IP_KEY_PREFIX + clientIp) : List.of();
+    }
+}
@@ -22,9 +22,11 @@ public class OnboardingService {
 
     private static final Logger logger = LoggerFactory.getLogger(OnboardingService.class);
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public OnboardingService(UserRepository userRepository) {
+    public OnboardingService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     /**
@@ -32,7 +34,7 @@ public class OnboardingService {
      * Returns the exact format expected by LandlordDashboard.jsx
      */
     public Map<String, Object> getOnboardingProgress(UUID userId) {
-        User user = userRepository.findById(userId)
+        User user = userCache.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         Set<OnboardingFeature> completedFeatures = user.getCompletedFeatures();
@@ -168,7 +170,7 @@ public class OnboardingService {
      * Get completed features set
      */
     public Set<OnboardingFeature> getCompletedFeatures(UUID userId) {
-        User user = userRepository.findById(userId)
+        User user = userCache.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         Set<OnboardingFeature> features = user.getCompletedFeatures();
@@ -19,16 +19,18 @@ import java.util.UUID;
 public class PayoutServiceImpl implements PayoutService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
     private final WebClient webClient;
     private final String paymentBearerToken;
     private final String paymentServiceBaseUrl;
     private final String payoutProfileResolvePath;
 
-    public PayoutServiceImpl(UserRepository userRepository, WebClient.Builder webClientBuilder,
+    public PayoutServiceImpl(UserRepository userRepository, UserCache userCache, WebClient.Builder webClientBuilder,
                              @Value("${payment.service.bearer-token}") String paymentBearerToken,
                              @Value("${payment.service.base-url}") String paymentServiceBaseUrl,
                              @Value("${payment.service.payout-profile-resolve-path:/payout-profile/resolve}") String payoutProfileResolvePath) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
         this.paymentBearerToken = paymentBearerToken;
         this.paymentServiceBaseUrl = paymentServiceBaseUrl;
         this.payoutProfileResolvePath = payoutProfileResolvePath;
@@ -85,7 +87,7 @@ public class PayoutServiceImpl implements PayoutService {
 
     @Override
     public PayoutInfoResponse getPayoutInfo(UUID userId) {
-        User user = userRepository.findById(userId).orElse(null);
+        User user = userCache.findById(userId).orElse(null);
         if (user == null || user.getPayoutInfo() == null || user.getPayoutInfo().getAccountNumber() == null) {
             return new PayoutInfoResponse(false, null);
         }
@@ -0,0 +1,228 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.utils.JwtUtils;
+import dev.dolu.userservice.utils.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Multi-device refresh sessions.
+ * <p>
+ * Every login opens a session: a field in the per-user hash {@code refresh_sessions:<email>} whose
+ * value is {@code <current refresh jti>|<expiresAt>}. Refresh tokens carry the session id
+ * ({@code sid}) and a {@code jti}; rotating swaps in a new jti, so each refresh token is single-use.
+ * Presenting an already-rotated token is treated as theft and ends that session (the whole token
+ * family). Open, rotate, revoke-one and revoke-all are each a single Lua script call. Redis hash
+ * fields have no TTL of their own, so expiry lives in the value and the key's TTL tracks the
+ * longest-lived session.
+ */
+@Service
+public class RefreshSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshSessionService.class);
+
+    private static final String SESSIONS_KEY_PREFIX = "refresh_sessions:";
+    private static final String LEGACY_KEY_PREFIX = "refresh_";
+
+    // ARGV = sid, value, ttl ms, now. Drops expired sessions while it is there.
+    private static final DefaultRedisScript<Long> OPEN_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[4])
+            local fields = redis.call('HGETALL', KEYS[1])
+            for i = 1, #fields, 2 do
+              local sep = string.find(fields[i + 1], '|', 1, true)
+              if sep and tonumber(string.sub(fields[i + 1], sep + 1)) <= now then
+                redis.call('HDEL', KEYS[1], fields[i])
+              end
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[3]) then
+              redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return redis.call('HLEN', KEYS[1])
+            """, Long.class);
+
+    // ARGV = sid, presented jti, new value, ttl ms, now. 1 = rotated, 0 = unknown/expired, -1 = reuse (session revoked)
+    private static final DefaultRedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>("""
+            local value = redis.call('HGET', KEYS[1], ARGV[1])
+            if not value then
+              return 0
+            end
+            local sep = string.find(value, '|', 1, true)
+            local current = string.sub(value, 1, sep - 1)
+            if tonumber(string.sub(value, sep + 1)) <= tonumber(ARGV[5]) then
+              redis.call('HDEL', KEYS[1], ARGV[1])
+              return 0
+            end
+            if current ~= ARGV[2] then
+              redis.call('HDEL', KEYS[1], ARGV[1])
+              return -1
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+            if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[4]) then
+              redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            end
+            return 1
+            """, Long.class);
+
+    // ARGV = sid
+    private static final DefaultRedisScript<Long> REVOKE_ONE_SCRIPT = new DefaultRedisScript<>("""
+            local removed = redis.call('HDEL', KEYS[1], ARGV[1])
+            if redis.call('HLEN', KEYS[1]) == 0 then
+              redis.call('DEL', KEYS[1])
+            end
+            return removed
+            """, Long.class);
+
+    private static final DefaultRedisScript<Long> REVOKE_ALL_SCRIPT = new DefaultRedisScript<>("""
+            local count = redis.call('HLEN', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            return count
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final JwtUtils jwtUtils;
+    private final long refreshExpirationMs;
+
+    public RefreshSessionService(RedisTemplate<String, String> redisTemplate,
+                                 JwtUtils jwtUtils,
+                                 @Value("${jwt.refreshExpirationMs}") long refreshExpirationMs) {
+        this.redisTemplate = redisTemplate;
+        this.jwtUtils = jwtUtils;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    /** A new session's id and its first refresh token. */
+    public record IssuedSession(String sessionId, String refreshToken) {
+    }
+
+    /**
+     * Opens a new session for {@code user} alongside any other devices' sessions. The refresh token
+     * carries the user's id and role so rotation can mint claims-bearing access tokens without a
+     * database read.
+     */
+    public IssuedSession openSession(User user) {
+        String sessionId = UUID.randomUUID().toString();
+        String refreshToken = jwtUtils.generateRefreshToken(user.getId(), user.getEmail(), roleName(user), sessionId);
+        store(user.getEmail(), sessionId, refreshToken);
+        return new IssuedSession(sessionId, refreshToken);
+    }
+
+    /** Opens a session and returns {@code accessToken} + {@code refreshToken}, both bound to it. */
+    public Map<String, String> issueTokens(User user) {
+        IssuedSession session = openSession(user);
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("accessToken", jwtUtils.generateJwtToken(user.getId(), user.getEmail(), roleName(user), session.sessionId()));
+        tokens.put("refreshToken", session.refreshToken());
+        return tokens;
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token in the same session.
+     * The presented token stops working. Replaying an already-rotated token revokes the session.
+     */
+    public Map<String, String> rotate(String refreshToken) {
+        VerifiedToken verified;
+        try {
+            verified = jwtUtils.verify(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired refresh token.");
+        }
+        String email = verified.subject();
+        if (email == null || !jwtUtils.isRefreshToken(verified)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired refresh token.");
+        }
+        if (verified.sessionId() == null) {
+            return migrateLegacyToken(email, refreshToken);
+        }
+
+        String sessionId = verified.sessionId();
+        UUID userId = null;
+        String role = null;
+        if (verified.hasUserClaim()) {
+            Object id = verified.user().get("id");
+            Object claimedRole = verified.user().get("role");
+            userId = id != null ? UUID.fromString(id.toString()) : null;
+            role = claimedRole != null ? claimedRole.toString() : null;
+        }
+        String newRefreshToken = userId != null
+                ? jwtUtils.generateRefreshToken(userId, email, role, sessionId)
+                : jwtUtils.generateRefreshToken(email, sessionId);
+        long now = System.currentTimeMillis();
+        Long result = redisTemplate.execute(ROTATE_SCRIPT, List.of(sessionsKey(email)),
+                sessionId, String.valueOf(verified.jti()), sessionValue(newRefreshToken, now),
+                String.valueOf(refreshExpirationMs), String.valueOf(now));
+
+        if (result != null && result == -1) {
+            logger.warn("Refresh token reuse detected for {}; session {} revoked", email, sessionId);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token has already been used. Please sign in again.");
+        }
+        if (result == null || result != 1) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired refresh token.");
+        }
+
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("accessToken", userId != null
+                ? jwtUtils.generateJwtToken(userId, email, role, sessionId)
+                : jwtUtils.generateJwtToken(email, sessionId));
+        tokens.put("refreshToken", newRefreshToken);
+        return tokens;
+    }
+
+    /** Ends one device's session. Returns false if it was already gone. */
+    public boolean revoke(String email, String sessionId) {
+        Long removed = redisTemplate.execute(REVOKE_ONE_SCRIPT, List.of(sessionsKey(email)), sessionId);
+        return removed != null && removed > 0;
+    }
+
+    /** Ends every session of the user (sign out everywhere). Returns how many were open. */
+    public long revokeAll(String email) {
+        Long count = redisTemplate.execute(REVOKE_ALL_SCRIPT, List.of(sessionsKey(email)));
+        return count != null ? count : 0;
+    }
+
+    // Tokens from the old single-slot refresh_<email> store are accepted once and moved into a session
+    private Map<String, String> migrateLegacyToken(String email, String refreshToken) {
+        if (!jwtUtils.isRefreshTokenValid(email, refreshToken)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired refresh token.");
+        }
+        redisTemplate.delete(LEGACY_KEY_PREFIX + email);
+        String sessionId = UUID.randomUUID().toString();
+        String newRefreshToken = jwtUtils.generateRefreshToken(email, sessionId);
+        store(email, sessionId, newRefreshToken);
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("accessToken", jwtUtils.generateJwtToken(email, sessionId));
+        tokens.put("refreshToken", newRefreshToken);
+        return tokens;
+    }
+
+    private void store(String email, String sessionId, String refreshToken) {
+        long now = System.currentTimeMillis();
+        redisTemplate.execute(OPEN_SCRIPT, List.of(sessionsKey(email)),
+                sessionId, sessionValue(refreshToken, now), String.valueOf(refreshExpirationMs), String.valueOf(now));
+    }
+
+    private static String roleName(User user) {
+        return user.getRole() != null ? user.getRole().name() : null;
+    }
+
+    private String sessionValue(String refreshToken, long now) {
+        return jwtUtils.verify(refreshToken).jti() + "|" + (now + refreshExpirationMs);
+    }
+
+    private static String sessionsKey(String email) {
+        return SESSIONS_KEY_PREFIX + User.normalizeEmail(email);
+    }
+}
@@ -0,0 +1,120 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.utils.JwtUtils;
+import dev.dolu.userservice.utils.LruCache;
+import dev.dolu.userservice.utils.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch token introspection for other services.
+ * <p>
+ * Each token is verified with the shared cached parser; revocation for the whole batch is answered
+ * from the blacklist near-cache plus one MGET. Results are micro-cached for a couple of seconds
+ * (never past the token's expiry), so a gateway re-checking the same tokens across a fan-out
+ * costs a map lookup.
+ */
+@Service
+public class TokenIntrospectionService {
+
+    private static final Map<String, Object> INACTIVE = Map.of("active", false);
+
+    private final JwtUtils jwtUtils;
+    private final int maxBatchSize;
+    private final long microCacheTtlMs;
+    private final LruCache<String, CachedResult> results;
+
+    public TokenIntrospectionService(JwtUtils jwtUtils,
+                                     @Value("${auth.introspection.max-batch-size:500}") int maxBatchSize,
+                                     @Value("${auth.introspection.cache-ttl-ms:2000}") long microCacheTtlMs,
+                                     @Value("${auth.introspection.cache-size:20000}") int cacheSize) {
+        this.jwtUtils = jwtUtils;
+        this.maxBatchSize = maxBatchSize;
+        this.microCacheTtlMs = microCacheTtlMs;
+        this.results = new LruCache<>(cacheSize);
+    }
+
+    /** One result per input token, in order: {@code active} plus claims for active tokens. */
+    public List<Map<String, Object>> introspect(List<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return List.of();
+        }
+        if (tokens.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " tokens can be introspected per request.");
+        }
+
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> answers = new ArrayList<>(tokens.size());
+        String[] keys = new String[tokens.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<String> pendingTokens = new ArrayList<>();
+        List<VerifiedToken> pendingVerified = new ArrayList<>();
+
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            answers.add(INACTIVE);
+            if (token == null || token.isBlank()) {
+                continue;
+            }
+            keys[i] = JwtUtils.digest(token);
+            CachedResult cached = results.get(keys[i]);
+            if (cached != null && cached.validUntil() > now) {
+                answers.set(i, cached.result());
+                continue;
+            }
+            try {
+                VerifiedToken verified = jwtUtils.verify(token);
+                pending.add(i);
+                pendingTokens.add(token);
+                pendingVerified.add(verified);
+            } catch (JwtException | IllegalArgumentException e) {
+                results.put(keys[i], new CachedResult(INACTIVE, now + microCacheTtlMs));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            List<Boolean> revoked = jwtUtils.areTokensBlacklisted(pendingTokens, pendingVerified);
+            for (int p = 0; p < pending.size(); p++) {
+                VerifiedToken verified = pendingVerified.get(p);
+                // Same rule as JwtAuthenticationFilter: only access tokens are bearer credentials
+                Map<String, Object> result = revoked.get(p) || !jwtUtils.isAccessToken(verified) ? INACTIVE : describe(verified);
+                answers.set(pending.get(p), result);
+                results.put(keys[pending.get(p)],
+                        new CachedResult(result, Math.min(verified.expiration(), now + microCacheTtlMs)));
+            }
+        }
+        return answers;
+    }
+
+    private static Map<String, Object> describe(VerifiedToken verified) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("active", true);
+        result.put("sub", verified.subject());
+        result.put("exp", verified.expiration() / 1000);
+        if (verified.jti() != null) {
+            result.put("jti", verified.jti());
+        }
+        if (verified.sessionId() != null) {
+            result.put("sid", verified.sessionId());
+        }
+        if (verified.type() != null) {
+            result.put("type", verified.type());
+        }
+        if (verified.hasUserClaim()) {
+            result.put("user", verified.user());
+        }
+        return result;
+    }
+
+    private record CachedResult(Map<String, Object> result, long validUntil) {
+    }
+}
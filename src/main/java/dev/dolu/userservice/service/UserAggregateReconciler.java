@@ -0,0 +1,41 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import dev.dolu.userservice.repository.UserAggregateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically rebuilds the user aggregate counters from the users table, so any drift from the
+ * trigger-maintained values is bounded by {@code users.aggregates.reconcile-interval-ms}.
+ */
+@Service
+public class UserAggregateReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAggregateReconciler.class);
+
+    private final UserAggregateRepository userAggregateRepository;
+    private final CustomMetricService customMetricService;
+
+    public UserAggregateReconciler(UserAggregateRepository userAggregateRepository,
+                                   CustomMetricService customMetricService) {
+        this.userAggregateRepository = userAggregateRepository;
+        this.customMetricService = customMetricService;
+    }
+
+    @Scheduled(initialDelayString = "${users.aggregates.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${users.aggregates.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            long drifted = userAggregateRepository.reconcile();
+            if (drifted > 0) {
+                logger.warn("Corrected {} drifted user aggregate counters", drifted);
+                customMetricService.incrementUserAggregateDriftCounter(drifted);
+            }
+        } catch (Exception e) {
+            logger.error("User aggregate reconciliation failed; retrying on the next run", e);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package dev.dolu.userservice.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.dolu.userservice.metrics.CustomMetricService;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.utils.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through user cache: a size-bounded in-process tier in front of a shared Redis tier, keyed by
+ * id, with an email → id map for lookups by email.
+ * <p>
+ * Entries carry the row's {@code @Version}. Every committed save or delete writes a tombstone at the
+ * new version to both tiers and broadcasts {@code version:id} on {@link #INVALIDATION_CHANNEL}; a
+ * cache fill carrying an older version never overwrites it, so a read racing a write cannot put a
+ * stale row back. Both tiers also expire, which bounds staleness if a message is lost.
+ * <p>
+ * Returned users are detached snapshots. Use them for reads only; code that modifies a user must
+ * load it through {@link UserRepository} so the save is checked against the current version.
+ * Cached copies never hold the password hash, so credentials stay out of Redis and a returned
+ * user's password may be null; login and password changes read the row from the repository.
+ */
+@Service
+public class UserCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "user_cache_invalidation";
+
+    // v2: entries without the password hash; v1 entries are never read and expire on their own
+    private static final String ID_KEY_PREFIX = "user_cache:v2:id:";
+    private static final String EMAIL_KEY_PREFIX = "user_cache:v2:email:";
+
+    // Used for updates that bypass @Version (bulk SQL): drop whatever is cached regardless of version
+    private static final long ANY_VERSION = -1;
+
+    // KEYS[1] = entry; ARGV = version, payload ('' = tombstone), ttl ms. Values are "<version>|<json>".
+    // Refuses to replace a newer version, or an equal one unless a fill is replacing a tombstone.
+    private static final DefaultRedisScript<Long> PUT_IF_NEWER_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+              local sep = string.find(current, '|', 1, true)
+              local cached = tonumber(string.sub(current, 1, sep - 1))
+              local incoming = tonumber(ARGV[1])
+              if cached > incoming or (cached == incoming and (ARGV[2] == '' or sep < #current)) then
+                return 0
+              end
+            end
+            redis.call('SET', KEYS[1], ARGV[1] .. '|' .. ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final CustomMetricService customMetricService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long localTtlMs;
+    private final long redisTtlMs;
+    private final LruCache<UUID, Entry> entries;
+    private final LruCache<String, UUID> emailIds;
+
+    public UserCache(UserRepository userRepository,
+                     RedisTemplate<String, String> redisTemplate,
+                     RedisMessageListenerContainer listenerContainer,
+                     CustomMetricService customMetricService,
+                     PlatformTransactionManager transactionManager,
+                     ObjectMapper objectMapper,
+                     @Value("${users.cache.enabled:true}") boolean enabled,
+                     @Value("${users.cache.local-size:10000}") int localSize,
+                     @Value("${users.cache.local-ttl-ms:30000}") long localTtlMs,
+                     @Value("${users.cache.redis-ttl-ms:600000}") long redisTtlMs) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.customMetricService = customMetricService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper.copy().addMixIn(User.class, CachedUserMixin.class);
+        this.enabled = enabled;
+        this.localTtlMs = localTtlMs;
+        this.redisTtlMs = redisTtlMs;
+        this.entries = new LruCache<>(localSize);
+        this.emailIds = new LruCache<>(localSize);
+        customMetricService.registerUserCacheCapacityEvictions(entries, LruCache::evictionCount);
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /** Cached {@code findById}. */
+    public Optional<User> findById(UUID id) {
+        if (!enabled || id == null) {
+            return id == null ? Optional.empty() : userRepository.findById(id);
+        }
+        String cached = cachedJson(id);
+        User user = cached != null ? fromJson(cached) : null;
+        if (user != null) {
+            return Optional.of(user);
+        }
+        customMetricService.incrementUserCacheMissCounter();
+        return readOnlyTransaction.execute(status -> {
+            Optional<User> loaded = userRepository.findById(id);
+            loaded.ifPresent(this::fill);
+            return loaded;
+        });
+    }
+
+    /** Cached {@code findByEmail}; null when there is no such user, like the repository method. */
+    public User findByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        if (!enabled || normalized == null) {
+            return userRepository.findByEmail(email);
+        }
+        UUID id = emailIds.get(normalized);
+        if (id == null) {
+            String remoteId = redisGet(EMAIL_KEY_PREFIX + normalized);
+            id = remoteId != null ? UUID.fromString(remoteId) : null;
+        }
+        if (id != null) {
+            String cached = cachedJson(id);
+            User user = cached != null ? fromJson(cached) : null;
+            // The mapping may predate an email change; only trust it if the row still has this email
+            if (user != null && normalized.equals(user.getEmailNormalized())) {
+                emailIds.put(normalized, id);
+                return user;
+            }
+        }
+        customMetricService.incrementUserCacheMissCounter();
+        return readOnlyTransaction.execute(status -> {
+            User loaded = userRepository.findByEmail(email);
+            if (loaded != null) {
+                fill(loaded);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Marks {@code id} as changed at {@code version}: both tiers get a tombstone and the other nodes
+     * are told. Call after the change has committed.
+     */
+    public void invalidate(UUID id, long version) {
+        if (!enabled) {
+            return;
+        }
+        dropLocal(id, version);
+        try {
+            redisTemplate.execute(PUT_IF_NEWER_SCRIPT, List.of(ID_KEY_PREFIX + id),
+                    String.valueOf(version), "", String.valueOf(redisTtlMs));
+        } catch (Exception e) {
+            logger.warn("Could not write user cache tombstone for {}: {}", id, e.getMessage());
+        }
+        publish(version, List.of(id));
+    }
+
+    /** Drops {@code ids} everywhere, whatever version is cached; for bulk updates that do not bump {@code @Version}. */
+    public void invalidateAll(Collection<UUID> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        for (UUID id : ids) {
+            dropLocal(id, ANY_VERSION);
+        }
+        try {
+            redisTemplate.delete(ids.stream().map(id -> ID_KEY_PREFIX + id).collect(Collectors.toList()));
+        } catch (Exception e) {
+            logger.warn("Could not drop {} user cache entries: {}", ids.size(), e.getMessage());
+        }
+        publish(ANY_VERSION, ids);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            long version = Long.parseLong(body.substring(0, separator));
+            for (String id : body.substring(separator + 1).split(",")) {
+                dropLocal(UUID.fromString(id), version);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed user cache invalidation '{}'", body);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Local tier first, then Redis (copied into the local tier); null on a miss or a tombstone
+    private String cachedJson(UUID id) {
+        long now = System.currentTimeMillis();
+        Entry local = entries.get(id);
+        if (local != null && local.validUntil > now && local.json != null) {
+            customMetricService.incrementUserCacheHitCounter("local");
+            return local.json;
+        }
+        String remote = redisGet(ID_KEY_PREFIX + id);
+        if (remote == null) {
+            return null;
+        }
+        int separator = remote.indexOf('|');
+        String json = remote.substring(separator + 1);
+        if (json.isEmpty()) {
+            return null;
+        }
+        long version = Long.parseLong(remote.substring(0, separator));
+        if (!putLocal(id, new Entry(version, json, now + localTtlMs))) {
+            return null;
+        }
+        customMetricService.incrementUserCacheHitCounter("redis");
+        return json;
+    }
+
+    // Writes a freshly loaded row to both tiers (unless a newer version was invalidated meanwhile)
+    private void fill(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize user {} for caching: {}", user.getId(), e.getMessage());
+            return;
+        }
+        long version = user.getVersion() != null ? user.getVersion() : 0;
+        if (!putLocal(user.getId(), new Entry(version, json, System.currentTimeMillis() + localTtlMs))) {
+            return;
+        }
+        String normalized = user.getEmailNormalized();
+        if (normalized != null) {
+            emailIds.put(normalized, user.getId());
+        }
+        try {
+            redisTemplate.execute(PUT_IF_NEWER_SCRIPT, List.of(ID_KEY_PREFIX + user.getId()),
+                    String.valueOf(version), json, String.valueOf(redisTtlMs));
+            if (normalized != null) {
+                redisTemplate.opsForValue().set(EMAIL_KEY_PREFIX + normalized, user.getId().toString(),
+                        redisTtlMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            logger.debug("User cache fill for {} stayed local: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    // False when the local tier already holds a newer version (or a tombstone for this one)
+    private boolean putLocal(UUID id, Entry entry) {
+        synchronized (entries) {
+            Entry current = entries.get(id);
+            if (current != null && current.validUntil > System.currentTimeMillis()
+                    && (current.version > entry.version || (current.version == entry.version && current.json == null))) {
+                return false;
+            }
+            entries.put(id, entry);
+            return true;
+        }
+    }
+
+    private void dropLocal(UUID id, long version) {
+        synchronized (entries) {
+            Entry current = entries.get(id);
+            if (current != null && current.json != null) {
+                customMetricService.incrementUserCacheInvalidationCounter();
+            }
+            if (version == ANY_VERSION) {
+                entries.remove(id);
+            } else if (current == null || current.version <= version) {
+                entries.put(id, new Entry(version, null, System.currentTimeMillis() + localTtlMs));
+            }
+        }
+    }
+
+    private void publish(long version, Collection<UUID> ids) {
+        List<String> idStrings = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            idStrings.add(id.toString());
+        }
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, version + ":" + String.join(",", idStrings));
+        } catch (Exception e) {
+            logger.warn("Could not publish user cache invalidation; other nodes catch up within {} ms", localTtlMs, e);
+        }
+    }
+
+    private String redisGet(String key) {
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            logger.debug("User cache Redis read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private User fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, User.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Discarding unreadable cached user: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Drops the password hash from the cached form, both ways
+    private abstract static class CachedUserMixin {
+        @JsonIgnore
+        abstract String getPassword();
+
+        @JsonIgnore
+        abstract void setPassword(String password);
+    }
+
+    // Tombstones have json == null
+    private record Entry(long version, String json, long validUntil) {
+    }
+}
@@ -0,0 +1,67 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.security.UserStatusCache;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on {@link User} that invalidates {@link UserCache} and the JWT filter's
+ * {@link UserStatusCache} once a save or delete commits, so disabling or deleting an account takes
+ * effect at once.
+ * {@code @PostUpdate} only fires when Hibernate actually wrote the row, i.e. when {@code @Version}
+ * was bumped, and the entity already carries the new version at that point. Instantiated by
+ * Hibernate through Spring's bean container; the caches are looked up lazily because they are
+ * created after the entity manager factory.
+ */
+public class UserCacheInvalidator {
+
+    private final ObjectProvider<UserCache> userCache;
+    private final ObjectProvider<UserStatusCache> userStatusCache;
+
+    public UserCacheInvalidator(ObjectProvider<UserCache> userCache, ObjectProvider<UserStatusCache> userStatusCache) {
+        this.userCache = userCache;
+        this.userStatusCache = userStatusCache;
+    }
+
+    @PostUpdate
+    public void afterUpdate(User user) {
+        afterCommit(user, user.getVersion() != null ? user.getVersion() : 0);
+    }
+
+    @PostRemove
+    public void afterRemove(User user) {
+        // One past the last version, so no fill of the deleted row can win
+        afterCommit(user, (user.getVersion() != null ? user.getVersion() : 0) + 1);
+    }
+
+    private void afterCommit(User user, long version) {
+        if (user.getId() == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(user, version);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(user, version);
+            }
+        });
+    }
+
+    private void invalidate(User user, long version) {
+        UserCache cache = userCache.getIfAvailable();
+        if (cache != null) {
+            cache.invalidate(user.getId(), version);
+        }
+        UserStatusCache statusCache = userStatusCache.getIfAvailable();
+        if (statusCache != null && user.getEmail() != null) {
+            statusCache.evict(user.getEmail());
+        }
+    }
+}
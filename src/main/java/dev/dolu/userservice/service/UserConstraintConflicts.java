@@ -0,0 +1,54 @@
+package dev.dolu.userservice.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps unique-constraint violations on {@code qorelabs_users} back to the 409 messages clients
+ * already know, so registration can just insert and let the database arbitrate duplicates.
+ * <p>
+ * The offending column is read from the driver message: Postgres reports
+ * {@code Key (email)=(...) already exists}, H2 reports {@code QORELABS_USERS(EMAIL ...)}.
+ */
+public final class UserConstraintConflicts {
+
+    private static final Pattern CONFLICTING_COLUMN =
+            Pattern.compile("\\((email_normalized|email|username|phone_number|phonenumber)[\\s)]");
+
+    private UserConstraintConflicts() {
+    }
+
+    /**
+     * Returns the matching 409 for a duplicate email, username or phone number, or {@code null}
+     * when the violation is something else (e.g. a NOT NULL column) and should be rethrown.
+     */
+    public static ResponseStatusException toConflict(DataIntegrityViolationException e) {
+        String column = conflictingColumn(e);
+        if (column == null) {
+            return null;
+        }
+        return switch (column) {
+            case "email", "email_normalized" -> new ResponseStatusException(HttpStatus.CONFLICT, "Email is already in use.");
+            case "username" -> new ResponseStatusException(HttpStatus.CONFLICT, "Username is already taken.");
+            default -> new ResponseStatusException(HttpStatus.CONFLICT, "Phone number is already in use.");
+        };
+    }
+
+    public static boolean isUsernameConflict(DataIntegrityViolationException e) {
+        return "username".equals(conflictingColumn(e));
+    }
+
+    private static String conflictingColumn(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message == null) {
+            return null;
+        }
+        Matcher matcher = CONFLICTING_COLUMN.matcher(message.toLowerCase(Locale.ROOT));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -12,8 +12,8 @@ import jakarta.mail.MessagingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -34,19 +34,25 @@ public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final UserRepository userRepository;
     private final JwtUtils jwtUtils;
     private final VerificationService verificationService;
     private final VerificationTokenRepository verificationTokenRepository;
     private final EmailService emailService;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final LoginThrottle loginThrottle;
+    private final RefreshSessionService refreshSessionService;
 
 
     private final CustomMetricService customMetricService;
 
     @Autowired
-    public UserService(UserRepository userRepository, JwtUtils jwtUtils, VerificationService verificationService, CustomMetricService customMetricService, VerificationTokenRepository verificationTokenRepository, EmailService emailService) {
-        this.passwordEncoder = new BCryptPasswordEncoder();
+    public UserService(UserRepository userRepository, JwtUtils jwtUtils, VerificationService verificationService, CustomMetricService customMetricService, VerificationTokenRepository verificationTokenRepository, EmailService emailService, PasswordHashingService passwordHashingService, LastLoginRecorder lastLoginRecorder, LoginThrottle loginThrottle, RefreshSessionService refreshSessionService) {
+        this.refreshSessionService = refreshSessionService;
+        this.passwordHashingService = passwordHashingService;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.loginThrottle = loginThrottle;
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
         this.verificationService = verificationService;
@@ -70,27 +76,17 @@ public class UserService {
             user.setUsername(null);
         }
 
-        // Check for existing username if one is provided
-        if (user.getUsername() != null && userRepository.existsByUsername(user.getUsername())) {
-            logger.warn("Registration failed: Username '{}' is already taken.", user.getUsername());
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Username is already taken.");
-        }
-
-        // Check for existing email
-        if (userRepository.existsByEmail(user.getEmail())) {
-            logger.warn("Registration failed: Email '{}' is already in use.", user.getEmail());
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email is already in use.");
-        }
-
         // Start timing
         long startTime = System.currentTimeMillis();
 
+        rejectTakenEmail(user);
+
         // Hash password and mark account as disabled (pending verification)
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         user.setEnabled(false);
 
-        // Save user
-        User savedUser = userRepository.save(user);
+        // Save user; duplicates are rejected by the unique constraints in the same statement
+        User savedUser = insertNewUser(user);
         response.put("user", savedUser);
         response.put("message", "User registered successfully. Please verify your email.");
 
@@ -109,40 +105,74 @@ public class UserService {
         return response;
     }
 
+    /**
+     * Indexed lookup on {@code email_normalized} so a repeated sign-up is turned away before paying for
+     * the password hash. Only an optimisation: a concurrent registration can still slip past it, and
+     * the unique constraint in {@link #insertNewUser} stays the authority.
+     */
+    private void rejectTakenEmail(User user) {
+        if (userRepository.existsByEmail(user.getEmail())) {
+            logger.warn("Registration rejected for '{}': email already in use", user.getEmail());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email is already in use.");
+        }
+    }
+
+    /**
+     * Inserts a new user in a single statement, flushed immediately so unique-constraint
+     * violations on email, username or phone number surface here as the usual 409 responses
+     * instead of a separate exists-check round trip per field (which also raced the insert).
+     */
+    private User insertNewUser(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            ResponseStatusException conflict = UserConstraintConflicts.toConflict(e);
+            if (conflict == null) {
+                throw e;
+            }
+            logger.warn("Registration rejected for '{}': {}", user.getEmail(), conflict.getReason());
+            throw conflict;
+        }
+    }
+
     /**
      * Authenticates a user by their email and password, and issues JWT tokens upon successful login.
      * If the account is not verified, resends the verification token and returns a 403 Forbidden error.
      *
+     * Emails and client IPs with too many recent failures are refused with a 429 before any lookup or hashing.
+     *
      * @param email    The user's email.
      * @param password The user's raw password.
+     * @param clientIp The caller's IP, used for per-IP throttling (may be null).
      * @return A map containing the access and refresh tokens.
      * @throws MessagingException If an error occurs while resending the verification token.
      */
 
     //TODO BLOCK PASSWORD LOGIN FOR AUTH USERS
-    public Map<String, String> login(String email, String password) throws MessagingException {
+    public Map<String, String> login(String email, String password, String clientIp) throws MessagingException {
         long startTime = System.currentTimeMillis();
 
+        // Refuse throttled emails/IPs before touching the database or the hashing pool
+        loginThrottle.checkAllowed(email, clientIp);
+
         // Retrieve user from database
         User user = userRepository.findByEmail(email);
 
-        if (user != null && passwordEncoder.matches(password, user
+        if (user != null && passwordHashingService.matches(password, user
                 .getPassword())) {
             // If user exists and password matches
 
             // Check if user is enabled (verified)
             if (!user.isEnabled()) {
+                // Counts against the throttle so repeated attempts cannot trigger unlimited resends
+                loginThrottle.recordFailure(email, clientIp);
                 // If not verified, resend verification token and return an error
                 verificationService.resendVerificationToken(user);
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Account not verified. A new verification email has been sent.");
             }
 
-            // Generate access and refresh tokens
-            String accessToken = jwtUtils.generateJwtToken(email);
-            String refreshToken = jwtUtils.generateRefreshToken(email);
-
-            // Store refresh token securely (Redis-backed storage)
-            jwtUtils.storeRefreshToken(refreshToken, email);
+            // Open a refresh session for this device and issue tokens bound to it
+            Map<String, String> tokens = refreshSessionService.issueTokens(user);
 
             // Calculate duration and record login time
             long duration = System.currentTimeMillis() - startTime;
@@ -150,14 +180,14 @@ public class UserService {
 
             // Increment success counter and return tokens
             customMetricService.incrementLoginSuccessCounter();
+            loginThrottle.recordSuccess(email);
 
-            // Record last login timestamp
-            user.setLastLogin(LocalDateTime.now());
-            userRepository.save(user);
+            // Upgrade legacy or below-target hashes while we still hold the raw password
+            rehashIfNeeded(user, password);
+
+            // Record last login timestamp (buffered and batch-written, no full-row save)
+            lastLoginRecorder.record(user.getId(), LocalDateTime.now());
 
-            Map<String, String> tokens = new HashMap<>();
-            tokens.put("accessToken", accessToken);
-            tokens.put("refreshToken", refreshToken);
             return tokens;
         }
 
@@ -165,6 +195,7 @@ public class UserService {
         long duration = System.currentTimeMillis() - startTime;
         customMetricService.recordLoginTime(duration);
         customMetricService.incrementLoginFailureCounter();
+        loginThrottle.recordFailure(email, clientIp);
 
         throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password.");
     }
@@ -174,32 +205,50 @@ public class UserService {
      * Authenticates a user for Zenest flow by email and password, and issues JWT tokens upon successful login.
      * If the account is not verified, resends the Zenest verification code and returns a 403 Forbidden error.
      */
-    public Map<String, String> loginZenest(String email, String password) throws MessagingException {
+    public Map<String, String> loginZenest(String email, String password, String clientIp) throws MessagingException {
         long startTime = System.currentTimeMillis();
+        loginThrottle.checkAllowed(email, clientIp);
         User user = userRepository.findByEmail(email);
-        if (user != null && passwordEncoder.matches(password, user.getPassword())) {
+        if (user != null && passwordHashingService.matches(password, user.getPassword())) {
             if (!user.isEnabled()) {
+                loginThrottle.recordFailure(email, clientIp);
                 // resend Zenest-specific verification code
                 verificationService.resendZenestVerificationCode(email);
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Account not verified. A new Zennest verification code has been sent.");
             }
-            String accessToken = jwtUtils.generateJwtToken(email);
-            String refreshToken = jwtUtils.generateRefreshToken(email);
-            jwtUtils.storeRefreshToken(refreshToken, email);
+            Map<String, String> tokens = refreshSessionService.issueTokens(user);
             customMetricService.recordLoginTime(System.currentTimeMillis() - startTime);
             customMetricService.incrementLoginSuccessCounter();
-            user.setLastLogin(LocalDateTime.now());
-            userRepository.save(user);
-            Map<String, String> tokens = new HashMap<>();
-            tokens.put("accessToken", accessToken);
-            tokens.put("refreshToken", refreshToken);
+            loginThrottle.recordSuccess(email);
+            rehashIfNeeded(user, password);
+            lastLoginRecorder.record(user.getId(), LocalDateTime.now());
             return tokens;
         }
         customMetricService.recordLoginTime(System.currentTimeMillis() - startTime);
         customMetricService.incrementLoginFailureCounter();
+        loginThrottle.recordFailure(email, clientIp);
         throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password.");
     }
 
+    /**
+     * Re-hashes the user's password with the current algorithm and cost when the stored hash is
+     * legacy or below target. Best effort: a saturated hashing pool just defers the upgrade to the
+     * next login. Only the password column is written, so the user's version is left untouched.
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            String upgraded = passwordHashingService.encode(rawPassword);
+            userRepository.updatePasswordHash(user.getId(), user.getPassword(), upgraded);
+            user.setPassword(upgraded);
+            logger.info("Upgraded password hash for user {}", user.getId());
+        } catch (PasswordHashingRejectedException e) {
+            logger.debug("Skipping password hash upgrade for user {}: hashing pool busy", user.getId());
+        }
+    }
+
     /**
      * Finds a user by their ID.
      *
@@ -212,10 +261,10 @@ public class UserService {
 
     // New helper methods
     public void recordLogin(UUID userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "User not found"));
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        if (!userRepository.existsById(userId)) {
+            throw new ResponseStatusException(NOT_FOUND, "User not found");
+        }
+        lastLoginRecorder.record(userId, LocalDateTime.now());
     }
 
     public User markProfileComplete(UUID userId) {
@@ -249,18 +298,11 @@ public class UserService {
         if (user.getUsername() != null && user.getUsername().isBlank()) {
             user.setUsername(null);
         }
-        // Check for existing username
-        if (user.getUsername() != null && userRepository.existsByUsername(user.getUsername())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Username is already taken.");
-        }
-        // Check for existing email
-        if (userRepository.existsByEmail(user.getEmail())) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Email is already in use.");
-        }
+        rejectTakenEmail(user);
         // Hash password and disable until verified
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         user.setEnabled(false);
-        User savedUser = userRepository.save(user);
+        User savedUser = insertNewUser(user);
         // Send Zenest code
         boolean sent = verificationService.sendZenestVerificationCode(savedUser.getEmail());
         if (!sent) {
@@ -300,11 +342,11 @@ public class UserService {
             throw new ResponseStatusException(BAD_REQUEST, "Invalid or expired code");
         }
 
-        if (passwordEncoder.matches(newPassword, user.getPassword())) {
+        if (passwordHashingService.matches(newPassword, user.getPassword())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "New password cannot be the same as the current password.");
         }
 
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         userRepository.save(user);
         verificationTokenRepository.delete(opt.get());
     }
@@ -380,7 +422,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "User not found"));
 
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getCurrentPassword(), user.getPassword())) {
             throw new ResponseStatusException(BAD_REQUEST, "Current password is incorrect");
         }
         if (!request.getNewPassword().equals(request.getConfirmPassword())) {
@@ -389,7 +431,7 @@ public class UserService {
         if (request.getNewPassword().length() < 8) {
             throw new ResponseStatusException(BAD_REQUEST, "New password must be at least 8 characters long");
         }
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         userRepository.save(user);
     }
 
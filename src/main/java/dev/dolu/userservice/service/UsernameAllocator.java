@@ -0,0 +1,113 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.utils.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Hands out free usernames of the form {@code base}, {@code base1}, {@code base2}, ...
+ * <p>
+ * One prefix query returns every existing username for the base; the lowest free suffix is
+ * computed in memory. Suffixes handed out in the last few seconds are remembered per base, so
+ * concurrent sign-ups on the same base pick different candidates before either row is visible.
+ * If the insert still hits the username constraint the candidate is reserved and the next one
+ * is tried.
+ */
+@Service
+public class UsernameAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameAllocator.class);
+
+    private final UserRepository userRepository;
+    private final long reservationTtlMs;
+    private final int maxAttempts;
+    private final LruCache<String, Reservations> recentlyAllocated;
+
+    public UsernameAllocator(UserRepository userRepository,
+                             @Value("${users.username-allocation.reservation-ttl-ms:30000}") long reservationTtlMs,
+                             @Value("${users.username-allocation.max-attempts:5}") int maxAttempts,
+                             @Value("${users.username-allocation.cache-size:1000}") int cacheSize) {
+        this.userRepository = userRepository;
+        this.reservationTtlMs = reservationTtlMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.recentlyAllocated = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Picks a free username for {@code base} and passes it to {@code insert}. Retries with the
+     * next candidate when the insert is rejected because the username was taken meanwhile.
+     */
+    public <T> T allocate(String base, Function<String, T> insert) {
+        for (int attempt = 1; ; attempt++) {
+            String candidate = nextCandidate(base);
+            try {
+                return insert.apply(candidate);
+            } catch (DataIntegrityViolationException e) {
+                if (!UserConstraintConflicts.isUsernameConflict(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.info("Username '{}' was taken concurrently; retrying (attempt {})", candidate, attempt + 1);
+            }
+        }
+    }
+
+    String nextCandidate(String base) {
+        List<String> existing = userRepository.findUsernamesLike(escapeLike(base) + "%");
+        Set<Integer> taken = new HashSet<>();
+        for (String username : existing) {
+            int suffix = suffixOf(base, username);
+            if (suffix >= 0) {
+                taken.add(suffix);
+            }
+        }
+
+        synchronized (recentlyAllocated) {
+            long now = System.currentTimeMillis();
+            Reservations reservations = recentlyAllocated.get(base);
+            if (reservations == null || reservations.expiresAt < now) {
+                reservations = new Reservations();
+                recentlyAllocated.put(base, reservations);
+            }
+            int suffix = 0;
+            while (taken.contains(suffix) || reservations.suffixes.contains(suffix)) {
+                suffix++;
+            }
+            reservations.suffixes.add(suffix);
+            reservations.expiresAt = now + reservationTtlMs;
+            return suffix == 0 ? base : base + suffix;
+        }
+    }
+
+    // 0 for the bare base, n for base + digits, -1 for anything else sharing the prefix
+    private static int suffixOf(String base, String username) {
+        if (username == null || !username.startsWith(base)) {
+            return -1;
+        }
+        String rest = username.substring(base.length());
+        if (rest.isEmpty()) {
+            return 0;
+        }
+        if (rest.length() > 9 || rest.charAt(0) == '0' || !rest.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Integer.parseInt(rest);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static final class Reservations {
+        private final Set<Integer> suffixes = new HashSet<>();
+        private long expiresAt;
+    }
+}
@@ -0,0 +1,210 @@
+package dev.dolu.userservice.utils;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.repository.UserSelectionRepository;
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLTypeUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rejects {@code /graphql} operations that are too deep or too expensive before any data fetcher
+ * runs.
+ * <p>
+ * Cost model, per selected field: 1, or {@code root-field-weight} for Query/Mutation fields (each is
+ * at least one database round trip), or {@code collection-field-weight} for list fields of
+ * {@code User} (element collections loaded per page), times the number of parent objects it is
+ * resolved for. {@code edges} of a connection multiply by the connection's {@code first} (its page
+ * size), capped as the repository caps it ({@code users.search.max-results} for {@code searchUsers});
+ * any other list multiplies by {@code default-list-size}. Introspection is not counted.
+ * <p>
+ * The budget is {@code graphql.cost.budget.<role>} for the caller's role, or
+ * {@code graphql.cost.budget.anonymous} without a token. The check runs per execution rather than
+ * inside validation, because cached documents skip validation ({@link GraphqlDocumentCache}) and the
+ * cost depends on variables and on the caller.
+ */
+@Component
+public class GraphqlCostInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final String SEARCH_USERS = "searchUsers";
+
+    private final CustomMetricService customMetricService;
+    private final Map<String, Long> budgets = new HashMap<>();
+    private final int maxDepth;
+    private final long rootFieldWeight;
+    private final long collectionFieldWeight;
+    private final long defaultListSize;
+    private final int maxSearchResults;
+
+    public GraphqlCostInstrumentation(CustomMetricService customMetricService,
+                                      Environment environment,
+                                      @Value("${graphql.max-depth:8}") int maxDepth,
+                                      @Value("${graphql.cost.root-field-weight:10}") long rootFieldWeight,
+                                      @Value("${graphql.cost.collection-field-weight:5}") long collectionFieldWeight,
+                                      @Value("${graphql.cost.default-list-size:10}") long defaultListSize,
+                                      @Value("${users.search.max-results:100}") int maxSearchResults) {
+        this.customMetricService = customMetricService;
+        this.maxDepth = maxDepth;
+        this.rootFieldWeight = rootFieldWeight;
+        this.collectionFieldWeight = collectionFieldWeight;
+        this.defaultListSize = defaultListSize;
+        this.maxSearchResults = maxSearchResults;
+
+        long anonymousBudget = environment.getProperty("graphql.cost.budget." + ANONYMOUS, Long.class, 1000L);
+        budgets.put(ANONYMOUS, anonymousBudget);
+        for (Role role : Role.values()) {
+            String key = role.name().toLowerCase(Locale.ROOT);
+            budgets.put(key, environment.getProperty("graphql.cost.budget." + key, Long.class, anonymousBudget));
+        }
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                        InstrumentationState state) {
+        ExecutionContext context = parameters.getExecutionContext();
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(context.getGraphQLSchema())
+                .document(context.getDocument())
+                .operationName(context.getExecutionInput().getOperationName())
+                .coercedVariables(context.getCoercedVariables())
+                .build();
+
+        long[] totals = new long[2]; // cost, depth
+        traverser.visitPreOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment env) {
+                if (isIntrospection(env)) {
+                    return;
+                }
+                totals[0] = saturatedAdd(totals[0], saturatedMultiply(weight(env), parentMultiplier(env)));
+                totals[1] = Math.max(totals[1], depth(env));
+            }
+        });
+
+        String role = callerRole();
+        long cost = totals[0];
+        long depth = totals[1];
+        long budget = budgets.getOrDefault(role, budgets.get(ANONYMOUS));
+        boolean rejected = depth > maxDepth || cost > budget;
+        customMetricService.recordGraphqlQueryCost(role, rejected, cost);
+
+        if (depth > maxDepth) {
+            throw new AbortExecutionException("Query depth " + depth + " exceeds the limit of " + maxDepth);
+        }
+        if (cost > budget) {
+            throw new AbortExecutionException("Query cost " + cost + " exceeds the budget of " + budget);
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    private long weight(QueryVisitorFieldEnvironment env) {
+        if (env.getParentEnvironment() == null) {
+            return rootFieldWeight;
+        }
+        if (isList(env.getFieldDefinition().getType())
+                && env.getFieldsContainer() instanceof GraphQLObjectType parent && "User".equals(parent.getName())) {
+            return collectionFieldWeight;
+        }
+        return 1;
+    }
+
+    // How many times this field is resolved: the product of the list sizes above it
+    private long parentMultiplier(QueryVisitorFieldEnvironment env) {
+        long multiplier = 1;
+        for (QueryVisitorFieldEnvironment parent = env.getParentEnvironment(); parent != null; parent = parent.getParentEnvironment()) {
+            multiplier = saturatedMultiply(multiplier, listSize(parent));
+        }
+        return multiplier;
+    }
+
+    private long listSize(QueryVisitorFieldEnvironment env) {
+        if (!isList(env.getFieldDefinition().getType())) {
+            return 1;
+        }
+        QueryVisitorFieldEnvironment connection = env.getParentEnvironment();
+        if ("edges".equals(env.getField().getName()) && connection != null && isConnection(connection)) {
+            Object first = connection.getArguments().get("first");
+            int pageSize = first instanceof Number n ? n.intValue() : UserSelectionRepository.DEFAULT_PAGE_SIZE;
+            // Same caps UserSelectionRepository applies when it runs the query
+            int maxPageSize = SEARCH_USERS.equals(connection.getField().getName())
+                    ? maxSearchResults : UserSelectionRepository.MAX_PAGE_SIZE;
+            return Math.max(1, Math.min(pageSize, maxPageSize));
+        }
+        return defaultListSize;
+    }
+
+    private static long depth(QueryVisitorFieldEnvironment env) {
+        long depth = 1;
+        for (QueryVisitorFieldEnvironment parent = env.getParentEnvironment(); parent != null; parent = parent.getParentEnvironment()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static boolean isIntrospection(QueryVisitorFieldEnvironment env) {
+        for (QueryVisitorFieldEnvironment current = env; current != null; current = current.getParentEnvironment()) {
+            if (current.getField().getName().startsWith("__")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isList(GraphQLOutputType type) {
+        return GraphQLTypeUtil.unwrapNonNull(type) instanceof GraphQLList;
+    }
+
+    private static boolean isConnection(QueryVisitorFieldEnvironment env) {
+        return GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType()) instanceof GraphQLNamedType named
+                && named.getName().endsWith("Connection");
+    }
+
+    private static String callerRole() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith("ROLE_")) {
+                return name.substring("ROLE_".length()).toLowerCase(Locale.ROOT);
+            }
+        }
+        return ANONYMOUS;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,169 @@
+package dev.dolu.userservice.utils;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Parsed-and-validated document cache for {@code /graphql}, with automatic persisted queries.
+ * <p>
+ * Every document is keyed by the hex SHA-256 of its text; a hit skips the parser and validator.
+ * Clients following the Apollo APQ protocol send only {@code extensions.persistedQuery.sha256Hash}:
+ * an unknown hash answers {@code PersistedQueryNotFound}, and the client retries once with the full
+ * text, which is checked against the hash and cached. The cache is bounded, so an evicted hash simply
+ * costs one such retry.
+ * <p>
+ * Documents found under {@code graphql.documents.allow-list-location} are registered up front, so
+ * their hashes work without that first retry. With {@code graphql.documents.allow-list-only} they
+ * are the only documents that may run, whether sent by hash or in full.
+ * <p>
+ * Hash-only HTTP requests arrive with {@link #PERSISTED_QUERY_PLACEHOLDER} as their text, put there by
+ * {@link PersistedQueryRequestFilter}.
+ */
+@Component
+public class GraphqlDocumentCache implements PreparsedDocumentProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphqlDocumentCache.class);
+
+    /** Stands in for the missing query text of a hash-only request; a comment, so it never parses as an operation. */
+    public static final String PERSISTED_QUERY_PLACEHOLDER = "# persisted query";
+
+    private final LruCache<String, PreparsedDocumentEntry> documents;
+    private final Map<String, String> allowList;
+    private final boolean allowListOnly;
+    private final CustomMetricService customMetricService;
+
+    public GraphqlDocumentCache(CustomMetricService customMetricService,
+                                @Value("${graphql.documents.cache-size:1000}") int cacheSize,
+                                @Value("${graphql.documents.allow-list-only:false}") boolean allowListOnly,
+                                @Value("${graphql.documents.allow-list-location:classpath*:graphql/persisted/*.graphql}") String allowListLocation) {
+        this.customMetricService = customMetricService;
+        this.documents = new LruCache<>(cacheSize);
+        this.allowListOnly = allowListOnly;
+        this.allowList = loadAllowList(allowListLocation);
+        if (allowListOnly) {
+            logger.info("GraphQL allow-list mode: {} documents accepted", allowList.size());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String query = executionInput.getQuery();
+        boolean hasText = query != null && !query.isBlank() && !PERSISTED_QUERY_PLACEHOLDER.equals(query);
+        String persistedHash = persistedQueryHash(executionInput);
+
+        String hash;
+        if (hasText) {
+            hash = sha256Hex(query);
+            if (persistedHash != null && !persistedHash.equalsIgnoreCase(hash)) {
+                customMetricService.incrementGraphqlDocumentCounter("invalid");
+                return error("PersistedQueryIdInvalid", "PERSISTED_QUERY_ID_INVALID");
+            }
+        } else if (persistedHash != null) {
+            hash = persistedHash.toLowerCase(Locale.ROOT);
+        } else {
+            // Nothing to look up; let graphql-java report the empty document
+            return parseAndValidateFunction.apply(executionInput);
+        }
+
+        if (allowListOnly && !allowList.containsKey(hash)) {
+            customMetricService.incrementGraphqlDocumentCounter("rejected");
+            return error("PersistedQueryNotAllowed", "PERSISTED_QUERY_NOT_ALLOWED");
+        }
+
+        PreparsedDocumentEntry cached = documents.get(hash);
+        if (cached != null) {
+            customMetricService.incrementGraphqlDocumentCounter("hit");
+            return cached;
+        }
+
+        ExecutionInput input = executionInput;
+        if (!hasText) {
+            String registered = allowList.get(hash);
+            if (registered == null) {
+                customMetricService.incrementGraphqlDocumentCounter("not_found");
+                return error("PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND");
+            }
+            input = executionInput.transform(builder -> builder.query(registered));
+        }
+
+        customMetricService.incrementGraphqlDocumentCounter("miss");
+        PreparsedDocumentEntry entry = parseAndValidateFunction.apply(input);
+        // Documents with syntax or validation errors are not worth keeping
+        if (!entry.hasErrors()) {
+            documents.put(hash, entry);
+        }
+        return entry;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                     Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return CompletableFuture.completedFuture(getDocument(executionInput, parseAndValidateFunction));
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    private static String persistedQueryHash(ExecutionInput executionInput) {
+        Map<String, Object> extensions = executionInput.getExtensions();
+        if (extensions != null && extensions.get("persistedQuery") instanceof Map<?, ?> persistedQuery
+                && persistedQuery.get("sha256Hash") instanceof String hash && !hash.isBlank()) {
+            return hash;
+        }
+        return null;
+    }
+
+    private static PreparsedDocumentEntry error(String message, String code) {
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                .message(message)
+                .extensions(Map.of("code", code))
+                .build());
+    }
+
+    private static Map<String, String> loadAllowList(String location) {
+        Map<String, String> allowList = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location)) {
+                String document = resource.getContentAsString(StandardCharsets.UTF_8);
+                allowList.put(sha256Hex(document), document);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load persisted GraphQL documents from " + location, e);
+        }
+        return Map.copyOf(allowList);
+    }
+
+    private static String sha256Hex(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package dev.dolu.userservice.utils;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Asymmetric signing keys for issued JWTs, shared by every node through Redis.
+ * <p>
+ * With {@code jwt.signing.algorithm} set to {@code ES256} or {@code RS256}, tokens are signed with
+ * the newest key in the ring and carry its {@code kid}; verification picks the public key by
+ * {@code kid}. A scheduled check adds a new key once the newest is older than the rotation interval.
+ * Retired keys stay verifiable for the longest token lifetime, then drop out. Public keys are
+ * published as a JWKS so other services can verify tokens without calling us.
+ * <p>
+ * Private keys are stored in Redis encrypted with AES-GCM under {@code jwt.signing.key-encryption-key},
+ * which comes from configuration and never reaches Redis. Entries written before encryption was
+ * introduced are still read and are rewritten encrypted on the next load. A token with an unknown
+ * {@code kid} reloads the ring at most once per {@code jwt.signing.reload-min-interval-ms}, so forged
+ * key ids cannot turn into a Redis read per request.
+ * <p>
+ * {@code HS256} (the default) keeps the shared-secret behaviour. Tokens without a {@code kid} are
+ * still checked against the HMAC secret while {@code jwt.signing.accept-legacy-hmac} is on, so
+ * sessions issued before the switch survive it. Services that verify our tokens must read the JWKS
+ * before the algorithm is switched, or every newly issued token fails for them; the switch is
+ * therefore opt-in through {@code JWT_SIGNING_ALGORITHM} together with {@code JWT_KEY_ENCRYPTION_KEY}.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    static final String KEYS_HASH = "jwt_signing_keys";
+    private static final String ROTATION_LOCK = "jwt_signing_keys:rotation_lock";
+    private static final String ENCRYPTED_PREFIX = "enc:";
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    /** One key of the ring; the newest by {@code createdAt} signs, the rest only verify. */
+    public record SigningKey(String kid, KeyPair keyPair, long createdAt) {
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final String algorithm;
+    private final long rotationIntervalMs;
+    private final long retentionMs;
+    private final boolean acceptLegacyHmac;
+    private final SecretKey keyEncryptionKey;
+    private final long reloadMinIntervalMs;
+    private final AtomicLong lastReloadAt = new AtomicLong(Long.MIN_VALUE / 2);
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile List<SigningKey> keys = List.of();
+    private volatile Map<String, Object> jwks = Map.of("keys", List.of());
+
+    public JwtKeyRing(RedisTemplate<String, String> redisTemplate,
+                      @Value("${jwt.signing.algorithm:HS256}") String algorithm,
+                      @Value("${jwt.signing.rotation-interval-hours:720}") long rotationIntervalHours,
+                      @Value("${jwt.refreshExpirationMs}") long longestTokenLifetimeMs,
+                      @Value("${jwt.signing.accept-legacy-hmac:true}") boolean acceptLegacyHmac,
+                      @Value("${jwt.signing.key-encryption-key:}") String keyEncryptionKey,
+                      @Value("${jwt.signing.reload-min-interval-ms:5000}") long reloadMinIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.algorithm = algorithm.toUpperCase();
+        this.rotationIntervalMs = Duration.ofHours(rotationIntervalHours).toMillis();
+        this.retentionMs = longestTokenLifetimeMs;
+        this.acceptLegacyHmac = acceptLegacyHmac;
+        if (!this.algorithm.equals("HS256") && !this.algorithm.equals("ES256") && !this.algorithm.equals("RS256")) {
+            throw new IllegalArgumentException("Unsupported jwt.signing.algorithm: " + algorithm);
+        }
+        if (isAsymmetric() && (keyEncryptionKey == null || keyEncryptionKey.isBlank())) {
+            throw new IllegalStateException("jwt.signing.key-encryption-key is required for " + this.algorithm);
+        }
+        this.keyEncryptionKey = isAsymmetric() ? deriveAesKey(keyEncryptionKey) : null;
+        this.reloadMinIntervalMs = reloadMinIntervalMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isAsymmetric()) {
+            rotateIfDue();
+        }
+    }
+
+    public boolean isAsymmetric() {
+        return !algorithm.equals("HS256");
+    }
+
+    public String algorithm() {
+        return algorithm;
+    }
+
+    /** Signs with the current ring key (adding its {@code kid}), or with the HMAC secret in HS256 mode. */
+    public JwtBuilder sign(JwtBuilder builder, Supplier<SecretKey> hmacKey) {
+        if (!isAsymmetric()) {
+            return builder.signWith(hmacKey.get());
+        }
+        SigningKey current = current();
+        return builder.header().keyId(current.kid()).and()
+                .signWith(current.keyPair().getPrivate(), signatureAlgorithm());
+    }
+
+    /** Key locator for parsers: ring public key by {@code kid}, HMAC secret for legacy tokens without one. */
+    public Locator<Key> keyLocator(Supplier<SecretKey> hmacKey) {
+        return new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                String kid = header.getKeyId();
+                if (kid == null) {
+                    if (!isAsymmetric() || acceptLegacyHmac) {
+                        return hmacKey.get();
+                    }
+                    throw new SignatureException("Token has no key id");
+                }
+                PublicKey publicKey = publicKey(kid);
+                if (publicKey == null) {
+                    throw new SignatureException("Unknown signing key id " + kid);
+                }
+                return publicKey;
+            }
+        };
+    }
+
+    public SigningKey current() {
+        List<SigningKey> snapshot = keys;
+        if (snapshot.isEmpty()) {
+            rotateIfDue();
+            snapshot = keys;
+        }
+        return snapshot.get(snapshot.size() - 1);
+    }
+
+    /**
+     * Public key for {@code kid}. An unknown kid reloads the ring in case another node just rotated,
+     * but no more often than {@code reload-min-interval-ms} across all callers.
+     */
+    public PublicKey publicKey(String kid) {
+        PublicKey found = find(kid);
+        if (found == null && isAsymmetric() && claimThrottledReload()) {
+            reload();
+            found = find(kid);
+        }
+        return found;
+    }
+
+    /** JWKS document with every verifiable public key; rebuilt only when the ring changes. */
+    public Map<String, Object> jwks() {
+        return jwks;
+    }
+
+    /**
+     * Adds a key when the ring is empty or its newest key is past the rotation interval, and drops
+     * keys whose successor has been active for longer than the longest token lifetime.
+     */
+    @Scheduled(fixedDelayString = "${jwt.signing.rotation-check-ms:3600000}")
+    public synchronized void rotateIfDue() {
+        if (!isAsymmetric()) {
+            return;
+        }
+        reload();
+        long now = System.currentTimeMillis();
+        List<SigningKey> snapshot = keys;
+        boolean due = snapshot.isEmpty() || snapshot.get(snapshot.size() - 1).createdAt() + rotationIntervalMs <= now;
+        // An empty ring must never stay empty, so the lock only guards routine rotations
+        if (due && (snapshot.isEmpty() || acquireRotationLock())) {
+            SigningKey generated = generate(now);
+            store(generated);
+            logger.info("Rotated JWT signing key; new kid {}", generated.kid());
+            reload();
+            if (keys.stream().noneMatch(key -> key.kid().equals(generated.kid()))) {
+                // Redis unavailable: keep signing locally rather than failing every login
+                List<SigningKey> local = new ArrayList<>(keys);
+                local.add(generated);
+                publish(local);
+            }
+        }
+        prune(now);
+    }
+
+    private PublicKey find(String kid) {
+        for (SigningKey key : keys) {
+            if (key.kid().equals(kid)) {
+                return key.keyPair().getPublic();
+            }
+        }
+        return null;
+    }
+
+    private boolean claimThrottledReload() {
+        long now = System.currentTimeMillis();
+        long last = lastReloadAt.get();
+        return now - last >= reloadMinIntervalMs && lastReloadAt.compareAndSet(last, now);
+    }
+
+    private void prune(long now) {
+        List<SigningKey> snapshot = keys;
+        List<SigningKey> kept = new ArrayList<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            boolean newest = i == snapshot.size() - 1;
+            if (newest || snapshot.get(i + 1).createdAt() + retentionMs > now) {
+                kept.add(snapshot.get(i));
+            } else {
+                try {
+                    redisTemplate.opsForHash().delete(KEYS_HASH, snapshot.get(i).kid());
+                } catch (Exception e) {
+                    logger.warn("Could not remove retired JWT key {}: {}", snapshot.get(i).kid(), e.getMessage());
+                }
+            }
+        }
+        if (kept.size() != snapshot.size()) {
+            publish(kept);
+        }
+    }
+
+    private void reload() {
+        lastReloadAt.set(System.currentTimeMillis());
+        Map<Object, Object> stored;
+        try {
+            stored = redisTemplate.opsForHash().entries(KEYS_HASH);
+        } catch (Exception e) {
+            logger.warn("Could not load JWT signing keys from Redis; keeping {} local keys: {}", keys.size(), e.getMessage());
+            return;
+        }
+        if (stored == null || stored.isEmpty()) {
+            return;
+        }
+        List<SigningKey> loaded = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : stored.entrySet()) {
+            String value = String.valueOf(entry.getValue());
+            SigningKey key = decode(String.valueOf(entry.getKey()), value);
+            if (key != null) {
+                loaded.add(key);
+                if (!isEncrypted(value)) {
+                    reencrypt(key);
+                }
+            }
+        }
+        publish(loaded);
+    }
+
+    private synchronized void publish(List<SigningKey> ring) {
+        List<SigningKey> sorted = new ArrayList<>(ring);
+        sorted.sort(Comparator.comparingLong(SigningKey::createdAt));
+        keys = List.copyOf(sorted);
+
+        List<Map<String, Object>> jwkList = new ArrayList<>();
+        for (SigningKey key : sorted) {
+            jwkList.add(toJwk(key));
+        }
+        jwks = Map.of("keys", List.copyOf(jwkList));
+    }
+
+    private boolean acquireRotationLock() {
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(ROTATION_LOCK, "1", Duration.ofMinutes(1));
+            return acquired == null || acquired;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private SigningKey generate(long now) {
+        KeyPair keyPair = signatureAlgorithm().keyPair().build();
+        return new SigningKey(UUID.randomUUID().toString(), keyPair, now);
+    }
+
+    private void store(SigningKey key) {
+        try {
+            redisTemplate.opsForHash().putIfAbsent(KEYS_HASH, key.kid(), encode(key));
+        } catch (Exception e) {
+            logger.warn("Could not share JWT signing key {} through Redis: {}", key.kid(), e.getMessage());
+        }
+    }
+
+    // Replaces a plaintext entry from before encryption; every node computes the same kid, so a race is harmless
+    private void reencrypt(SigningKey key) {
+        try {
+            redisTemplate.opsForHash().put(KEYS_HASH, key.kid(), encode(key));
+            logger.info("Encrypted stored JWT signing key {}", key.kid());
+        } catch (Exception e) {
+            logger.warn("Could not encrypt stored JWT signing key {}: {}", key.kid(), e.getMessage());
+        }
+    }
+
+    // algorithm|createdAt|enc:<Base64(iv + AES-GCM(PKCS#8 private key))>|<Base64 X.509 public key>
+    private String encode(SigningKey key) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return algorithm + "|" + key.createdAt()
+                + "|" + ENCRYPTED_PREFIX + encoder.encodeToString(encryptPrivateKey(key.kid(), key.keyPair().getPrivate().getEncoded()))
+                + "|" + encoder.encodeToString(key.keyPair().getPublic().getEncoded());
+    }
+
+    private static boolean isEncrypted(String value) {
+        String[] parts = value.split("\\|");
+        return parts.length == 4 && parts[2].startsWith(ENCRYPTED_PREFIX);
+    }
+
+    private SigningKey decode(String kid, String value) {
+        String[] parts = value.split("\\|");
+        if (parts.length != 4 || !parts[0].equals(algorithm)) {
+            return null;
+        }
+        try {
+            KeyFactory factory = KeyFactory.getInstance(algorithm.equals("ES256") ? "EC" : "RSA");
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] privateBytes = parts[2].startsWith(ENCRYPTED_PREFIX)
+                    ? decryptPrivateKey(kid, decoder.decode(parts[2].substring(ENCRYPTED_PREFIX.length())))
+                    : decoder.decode(parts[2]);
+            PrivateKey privateKey = factory.generatePrivate(new PKCS8EncodedKeySpec(privateBytes));
+            PublicKey publicKey = factory.generatePublic(new X509EncodedKeySpec(decoder.decode(parts[3])));
+            return new SigningKey(kid, new KeyPair(publicKey, privateKey), Long.parseLong(parts[1]));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            logger.error("Skipping unreadable JWT signing key {}", kid, e);
+            return null;
+        }
+    }
+
+    // The kid and algorithm are bound as associated data, so a ciphertext cannot be moved to another entry
+    private byte[] encryptPrivateKey(String kid, byte[] plaintext) {
+        try {
+            byte[] iv = new byte[GCM_IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(associatedData(kid));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            byte[] out = Arrays.copyOf(iv, GCM_IV_BYTES + ciphertext.length);
+            System.arraycopy(ciphertext, 0, out, GCM_IV_BYTES, ciphertext.length);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt JWT signing key", e);
+        }
+    }
+
+    private byte[] decryptPrivateKey(String kid, byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length <= GCM_IV_BYTES) {
+            throw new GeneralSecurityException("Truncated encrypted key");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, sealed, 0, GCM_IV_BYTES));
+        cipher.updateAAD(associatedData(kid));
+        return cipher.doFinal(sealed, GCM_IV_BYTES, sealed.length - GCM_IV_BYTES);
+    }
+
+    private byte[] associatedData(String kid) {
+        return (algorithm + "|" + kid).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Any configured secret becomes a 256-bit AES key
+    private static SecretKey deriveAesKey(String secret) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(hash, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private SignatureAlgorithm signatureAlgorithm() {
+        return algorithm.equals("ES256") ? Jwts.SIG.ES256 : Jwts.SIG.RS256;
+    }
+
+    private Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm);
+        PublicKey publicKey = key.keyPair().getPublic();
+        if (publicKey instanceof ECPublicKey ec) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(ec.getW().getAffineX(), 32));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), 32));
+        } else if (publicKey instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus(), 0));
+            jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+        }
+        return Collections.unmodifiableMap(jwk);
+    }
+
+    // Unsigned big-endian bytes, left-padded to {@code width} when non-zero (EC coordinates are fixed width)
+    private static String base64Url(BigInteger value, int width) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (width > bytes.length) {
+            byte[] padded = new byte[width];
+            System.arraycopy(bytes, 0, padded, width - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -9,8 +9,14 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -22,6 +28,17 @@ public class JwtUtils {
 
     private static final Logger logger = Logger.getLogger(JwtUtils.class.getName());
 
+    // Revoked tokens live under bl:<43-char digest> instead of the full compact JWT
+    static final String BLACKLIST_KEY_PREFIX = "bl:";
+
+    // Refresh-session id carried by refresh tokens and by the access tokens issued alongside them
+    static final String SESSION_ID_CLAIM = "sid";
+
+    // Which kind of token this is; bearer authentication takes only access tokens, rotation only refresh tokens
+    static final String TOKEN_TYPE_CLAIM = "typ";
+    static final String ACCESS_TOKEN_TYPE = "access";
+    static final String REFRESH_TOKEN_TYPE = "refresh";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -31,53 +48,301 @@ public class JwtUtils {
     @Value("${jwt.refreshExpirationMs}")
     private long refreshExpirationMs;
 
+    @Value("${jwt.verification.cache-size:10000}")
+    private int verificationCacheSize = 10000;
+
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private TokenBlacklistCache tokenBlacklistCache;
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    // Built once from jwtSecret; rebuilding the key and parser per call was the bulk of verify cost.
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+    private volatile LruCache<String, VerifiedToken> verifiedTokens;
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        SecretKey key = signingKey;
+        if (key == null) {
+            synchronized (this) {
+                key = signingKey;
+                if (key == null) {
+                    key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+                    signingKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            synchronized (this) {
+                parser = jwtParser;
+                if (parser == null) {
+                    parser = keyRing != null
+                            ? Jwts.parser().keyLocator(keyRing.keyLocator(this::getSigningKey)).build()
+                            : Jwts.parser().verifyWith(getSigningKey()).build();
+                    jwtParser = parser;
+                }
+            }
+        }
+        return parser;
+    }
+
+    // Ring key + kid header when asymmetric signing is on, otherwise the HMAC secret
+    private JwtBuilder sign(JwtBuilder builder) {
+        return keyRing != null ? keyRing.sign(builder, this::getSigningKey) : builder.signWith(getSigningKey());
+    }
+
+    private LruCache<String, VerifiedToken> getVerifiedTokens() {
+        LruCache<String, VerifiedToken> cache = verifiedTokens;
+        if (cache == null) {
+            synchronized (this) {
+                cache = verifiedTokens;
+                if (cache == null) {
+                    cache = new LruCache<>(Math.max(1, verificationCacheSize));
+                    verifiedTokens = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Verifies the signature and decodes the claims of {@code token} exactly once.
+     * Recently verified tokens are served from a bounded LRU keyed by the token's
+     * SHA-256 digest, so repeated checks of the same token skip the HMAC and JSON decode.
+     *
+     * @throws JwtException             if the token is malformed, tampered with or expired
+     * @throws IllegalArgumentException if the token is null or blank
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT string cannot be null or empty.");
+        }
+        String digest = digest(token);
+        LruCache<String, VerifiedToken> cache = getVerifiedTokens();
+        VerifiedToken cached = cache.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            cache.remove(digest);
+            throw new ExpiredJwtException(null, null, "JWT expired at " + new Date(cached.expiration()));
+        }
+
+        Claims claims = getParser().parseSignedClaims(token).getPayload();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> userClaim = (Map<String, Object>) claims.get("user");
+        Date expiration = claims.getExpiration();
+        Date issuedAt = claims.getIssuedAt();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                expiration != null ? expiration.getTime() : Long.MAX_VALUE,
+                userClaim,
+                userClaim != null ? (String) userClaim.get("type") : null,
+                claims.get(SESSION_ID_CLAIM, String.class),
+                claims.get(TOKEN_TYPE_CLAIM, String.class),
+                issuedAt != null ? issuedAt.getTime() : 0);
+        cache.put(digest, verified);
+        return verified;
+    }
+
+    /**
+     * Whether {@code verified} may be used as a bearer credential: {@code typ=access}, or, for tokens
+     * minted before {@code typ} existed, one that lives no longer than an access token (refresh
+     * tokens always outlived them). Magic-link tokens never qualify.
+     */
+    public boolean isAccessToken(VerifiedToken verified) {
+        if ("MAGIC_LINK".equals(verified.type())) {
+            return false;
+        }
+        if (verified.tokenType() != null) {
+            return ACCESS_TOKEN_TYPE.equals(verified.tokenType());
+        }
+        return verified.issuedAt() > 0 && verified.expiration() - verified.issuedAt() <= jwtExpirationMs;
+    }
+
+    /** Whether {@code verified} may be exchanged at {@code /refresh-token}; the counterpart of {@link #isAccessToken}. */
+    public boolean isRefreshToken(VerifiedToken verified) {
+        if ("MAGIC_LINK".equals(verified.type())) {
+            return false;
+        }
+        if (verified.tokenType() != null) {
+            return REFRESH_TOKEN_TYPE.equals(verified.tokenType());
+        }
+        return verified.issuedAt() > 0 && verified.expiration() - verified.issuedAt() > jwtExpirationMs;
+    }
+
+    /** URL-safe Base64 SHA-256 of the compact token; fixed width whatever the token size. */
+    public static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
+    /**
+     * Served from the near-cache when possible; only a cold or stale entry costs a Redis round trip.
+     * That round trip is one EXISTS covering the digest key and the raw-token key written by older
+     * builds; the latter can be dropped once the longest token lifetime has passed since rollout.
+     */
     public boolean isTokenBlacklisted(String token) {
-        return redisTemplate.hasKey(token);
+        return isTokenBlacklisted(token, verifyOrNull(token));
+    }
+
+    /** {@link #isTokenBlacklisted(String)} for a token the caller has already verified ({@code null} if it did not verify). */
+    public boolean isTokenBlacklisted(String token, VerifiedToken verified) {
+        String revocationId = revocationId(token, verified);
+        return tokenBlacklistCache.isBlacklisted(revocationId, verified != null ? verified.expiration() : 0,
+                () -> {
+                    Long found = redisTemplate.countExistingKeys(List.of(BLACKLIST_KEY_PREFIX + revocationId, token));
+                    return found != null && found > 0;
+                });
+    }
+
+    /**
+     * Batch form of {@link #isTokenBlacklisted(String)} for already-verified tokens, answered in
+     * input order. Near-cache hits cost nothing; all misses share a single MGET.
+     */
+    public List<Boolean> areTokensBlacklisted(List<String> tokens, List<VerifiedToken> verified) {
+        Boolean[] answers = new Boolean[tokens.size()];
+        String[] revocationIds = new String[tokens.size()];
+        List<Integer> misses = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            revocationIds[i] = revocationId(tokens.get(i), verified.get(i));
+            answers[i] = tokenBlacklistCache.peek(revocationIds[i]);
+            if (answers[i] == null) {
+                misses.add(i);
+                keys.add(BLACKLIST_KEY_PREFIX + revocationIds[i]);
+                keys.add(tokens.get(i));
+            }
+        }
+        if (!misses.isEmpty()) {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            for (int m = 0; m < misses.size(); m++) {
+                int i = misses.get(m);
+                boolean blacklisted = values != null && (values.get(2 * m) != null || values.get(2 * m + 1) != null);
+                VerifiedToken token = verified.get(i);
+                tokenBlacklistCache.record(revocationIds[i], token != null ? token.expiration() : 0, blacklisted);
+                answers[i] = blacklisted;
+            }
+        }
+        return Arrays.asList(answers);
+    }
+
+    /**
+     * Fixed-width id a revocation is stored under: the digest of the {@code jti} claim, or of the
+     * whole compact token for legacy tokens minted without one.
+     */
+    static String revocationId(String token, VerifiedToken verified) {
+        String jti = verified != null ? verified.jti() : null;
+        return jti != null && !jti.isBlank() ? digest(jti) : digest(token);
+    }
+
+    // null when the token does not verify (the blacklist decision is then cached only briefly)
+    private VerifiedToken verifyOrNull(String token) {
+        try {
+            return verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     public String generateJwtToken(String username) {
+        return generateJwtToken(username, null);
+    }
+
+    /** Access token bound to refresh session {@code sessionId} (omitted when null), so logout can end that session. */
+    public String generateJwtToken(String username, String sessionId) {
         Map<String, Object> claims = new HashMap<>();
-        return Jwts.builder()
+        claims.put(TOKEN_TYPE_CLAIM, ACCESS_TOKEN_TYPE);
+        if (sessionId != null) {
+            claims.put(SESSION_ID_CLAIM, sessionId);
+        }
+        return sign(Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs)))
                 .compact();
     }
 
     public String generateRefreshToken(String username) {
-        return Jwts.builder()
+        return generateRefreshToken(username, null);
+    }
+
+    /** Refresh token for session {@code sessionId}; its {@code jti} is what the session store tracks. */
+    public String generateRefreshToken(String username, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        if (sessionId != null) {
+            claims.put(SESSION_ID_CLAIM, sessionId);
+        }
+        return sign(Jwts.builder()
+                .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + refreshExpirationMs))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + refreshExpirationMs)))
+                .compact();
+    }
+
+    /** Refresh token that also carries the {@code user} claim, so rotation can mint claims-bearing access tokens. */
+    public String generateRefreshToken(UUID id, String email, String role, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        claims.put(SESSION_ID_CLAIM, sessionId);
+        claims.put("user", userClaim(id, email, role));
+        return sign(Jwts.builder()
+                .claims(claims)
+                .id(UUID.randomUUID().toString())
+                .subject(email)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + refreshExpirationMs)))
                 .compact();
     }
 
     public String generateJwtToken(UUID id, String email, String role) {
+        return generateJwtToken(id, email, role, null);
+    }
+
+    public String generateJwtToken(UUID id, String email, String role, String sessionId) {
         Map<String, Object> claims = new HashMap<>();
-        Map<String, Object> userClaim = new HashMap<>();
-        userClaim.put("id", id.toString());
-        userClaim.put("email", email);
-        userClaim.put("role", role);
-        claims.put("user", userClaim);
-        return Jwts.builder()
+        claims.put(TOKEN_TYPE_CLAIM, ACCESS_TOKEN_TYPE);
+        if (sessionId != null) {
+            claims.put(SESSION_ID_CLAIM, sessionId);
+        }
+        claims.put("user", userClaim(id, email, role));
+        return sign(Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(email)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs)))
                 .compact();
     }
 
+    private static Map<String, Object> userClaim(UUID id, String email, String role) {
+        Map<String, Object> userClaim = new HashMap<>();
+        userClaim.put("id", id.toString());
+        userClaim.put("email", email);
+        userClaim.put("role", role);
+        return userClaim;
+    }
+
     // Generate magic link token (shorter expiration for security)
     public String generateMagicLinkToken(UUID userId, String email, String role) {
         try {
@@ -92,12 +357,12 @@ public class JwtUtils {
             // Magic link tokens expire in 30 minutes for security
             long magicLinkExpiration = 30 * 60 * 1000; // 30 minutes
 
-            return Jwts.builder()
+            return sign(Jwts.builder()
                     .claims(claims)
+                    .id(UUID.randomUUID().toString())
                     .subject(email)
                     .issuedAt(new Date())
-                    .expiration(new Date(System.currentTimeMillis() + magicLinkExpiration))
-                    .signWith(getSigningKey())
+                    .expiration(new Date(System.currentTimeMillis() + magicLinkExpiration)))
                     .compact();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to generate magic link token: {0}", e.getMessage());
@@ -108,8 +373,7 @@ public class JwtUtils {
     // Check if token is a magic link token
     public boolean isMagicLinkToken(String token) {
         try {
-            Map<String, Object> userDetails = getUserDetailsFromJwtToken(token);
-            return userDetails != null && "MAGIC_LINK".equals(userDetails.get("type"));
+            return "MAGIC_LINK".equals(verify(token).type());
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error checking magic link token: {0}", e.getMessage());
             return false;
@@ -118,7 +382,7 @@ public class JwtUtils {
 
     public boolean validateJwtToken(String token) {
         try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
+            verify(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             logger.log(Level.SEVERE, "Invalid JWT token: {0}", e.getMessage());
@@ -127,14 +391,10 @@ public class JwtUtils {
     }
 
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verify(token).subject();
     }
 
+    // Single-slot refresh_<email> storage from before per-device sessions; only read to migrate old tokens
     public void storeRefreshToken(String refreshToken, String username) {
         redisTemplate.opsForValue().set("refresh_" + username, refreshToken, refreshExpirationMs, TimeUnit.MILLISECONDS);
     }
@@ -145,21 +405,18 @@ public class JwtUtils {
     }
 
     public long getExpirationFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getExpiration().getTime() - System.currentTimeMillis();
+        return verify(token).remainingMillis();
     }
 
     public void blacklistToken(String token, long expiration, TimeUnit unit) {
-        redisTemplate.opsForValue().set(token, "blacklisted", expiration, unit);
+        String revocationId = revocationId(token, verifyOrNull(token));
+        redisTemplate.opsForValue().set(BLACKLIST_KEY_PREFIX + revocationId, "1", expiration, unit);
+        tokenBlacklistCache.markBlacklisted(revocationId, System.currentTimeMillis() + unit.toMillis(expiration));
     }
 
     public boolean validateRefreshToken(String token) {
         try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
+            verify(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             logger.log(Level.SEVERE, "Refresh token is invalid: {0}", e.getMessage());
@@ -168,16 +425,17 @@ public class JwtUtils {
     }
 
     public Map<String, Object> getUserDetailsFromJwtToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return (Map<String, Object>) claims.get("user");
+        VerifiedToken verified = verify(token);
+        return verified.hasUserClaim() ? verified.user() : null;
     }
 
     // For testing only
-    void setJwtSecret(String secret) { this.jwtSecret = secret; }
+    void setJwtSecret(String secret) {
+        this.jwtSecret = secret;
+        this.signingKey = null;
+        this.jwtParser = null;
+        this.verifiedTokens = null;
+    }
     void setJwtExpirationMs(long ms) { this.jwtExpirationMs = ms; }
     void setRefreshExpirationMs(long ms) { this.refreshExpirationMs = ms; }
 }
@@ -2,6 +2,7 @@ package dev.dolu.userservice.utils;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -25,18 +26,32 @@ public class JwtUtilsSimple {
     @Value("${jwt.expirationMs}")
     private long jwtExpirationMs;
 
+    @Autowired
+    private JwtKeyRing keyRing;
+
     private SecretKey getSigningKey() {
         return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
     }
 
+    // Same key selection as JwtUtils: ring key + kid when asymmetric signing is on, else the HMAC secret
+    private JwtBuilder sign(JwtBuilder builder) {
+        return keyRing != null ? keyRing.sign(builder, this::getSigningKey) : builder.signWith(getSigningKey());
+    }
+
+    private JwtParser parser() {
+        return keyRing != null
+                ? Jwts.parser().keyLocator(keyRing.keyLocator(this::getSigningKey)).build()
+                : Jwts.parser().verifyWith(getSigningKey()).build();
+    }
+
     public String generateJwtToken(String username) {
         Map<String, Object> claims = new HashMap<>();
-        return Jwts.builder()
+        return sign(Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs)))
                 .compact();
     }
 
@@ -47,18 +62,18 @@ public class JwtUtilsSimple {
         userClaim.put("email", email);
         userClaim.put("role", role);
         claims.put("user", userClaim);
-        return Jwts.builder()
+        return sign(Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(email)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs)))
                 .compact();
     }
 
     public boolean validateJwtToken(String token) {
         try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
+            parser().parseSignedClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             logger.log(Level.SEVERE, "Invalid JWT token: {0}", e.getMessage());
@@ -67,18 +82,14 @@ public class JwtUtilsSimple {
     }
 
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return parser()
                 .parseSignedClaims(token)
                 .getPayload()
                 .getSubject();
     }
 
     public Map<String, Object> getUserDetailsFromJwtToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        Claims claims = parser()
                 .parseSignedClaims(token)
                 .getPayload();
         return (Map<String, Object>) claims.get("user");
@@ -0,0 +1,80 @@
+package dev.dolu.userservice.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque position in a keyset-paginated listing: the last row's sort key (as Postgres prints it,
+ * so it casts back exactly) and its id as the tie-breaker. Encoded as URL-safe Base64.
+ * <p>
+ * Cursors come back from clients, so the sort key is checked against the listing's type before it
+ * reaches a {@code CAST}; a tampered cursor is a bad request, not a SQL error.
+ */
+public record KeysetCursor(String sortKey, UUID id) {
+
+    // timestamp::text, e.g. 2024-05-01 12:30:00 or 2024-05-01 12:30:00.123456
+    private static final DateTimeFormatter POSTGRES_TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu-MM-dd HH:mm:ss")
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 6, true)
+            .toFormatter();
+
+    // COALESCE(created_at, '-infinity') puts rows without a creation time first
+    private static final String MINUS_INFINITY = "-infinity";
+
+    public String encode() {
+        String raw = sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException if {@code cursor} was not produced by {@link #encode()} */
+    public static KeysetCursor decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = raw.lastIndexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new KeysetCursor(raw.substring(0, separator), UUID.fromString(raw.substring(separator + 1)));
+    }
+
+    /**
+     * Decodes a cursor of a {@code (created_at, id)} listing.
+     *
+     * @throws IllegalArgumentException if it is malformed or its sort key is not a timestamp
+     */
+    public static KeysetCursor decodeTimestamp(String cursor) {
+        KeysetCursor decoded = decode(cursor);
+        if (!decoded.sortKey.equals(MINUS_INFINITY)) {
+            try {
+                LocalDateTime.parse(decoded.sortKey, POSTGRES_TIMESTAMP);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes a cursor of a listing ranked by a {@code real} score in [0, 1] (search relevance).
+     *
+     * @throws IllegalArgumentException if it is malformed or its sort key is not such a score
+     */
+    public static KeysetCursor decodeRank(String cursor) {
+        KeysetCursor decoded = decode(cursor);
+        float rank;
+        try {
+            rank = Float.parseFloat(decoded.sortKey);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (!(rank >= 0 && rank <= 1)) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,7 @@
+package dev.dolu.userservice.utils;
+
+import java.util.List;
+
+/** One page of a keyset-paginated listing; {@code nextCursor} is null on the last page. */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,79 @@
+package dev.dolu.userservice.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Small size-bounded, access-ordered cache used for in-process hot paths
+ * (verified tokens, lookups that are expensive to recompute).
+ * <p>
+ * All operations are synchronized on the instance; entries are evicted in
+ * least-recently-used order once {@code maxSize} is exceeded.
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+    private long evictions;
+
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized V remove(K key) {
+        return entries.remove(key);
+    }
+
+    /** Removes {@code key} only while it still maps to {@code value}. */
+    public synchronized boolean remove(K key, V value) {
+        return entries.remove(key, value);
+    }
+
+    /** Atomic {@link Map#merge}: {@code remapping} sees the current value and the new one. */
+    public synchronized V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return entries.merge(key, value, remapping);
+    }
+
+    public synchronized void removeIf(Predicate<V> predicate) {
+        entries.values().removeIf(predicate);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+}
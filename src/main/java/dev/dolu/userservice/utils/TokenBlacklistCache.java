@@ -0,0 +1,125 @@
+package dev.dolu.userservice.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Near-cache in front of the Redis token blacklist.
+ * <p>
+ * Decisions are cached per token digest. A "blacklisted" answer is kept until the token itself
+ * expires (a token never leaves the blacklist); a "not blacklisted" answer is kept for at most
+ * {@code negative-ttl-ms} and never past the token's expiry. Blacklisting on any node publishes
+ * {@code digest:expiresAt} on {@link #INVALIDATION_CHANNEL}, and every node (including the sender)
+ * flips its local entry to blacklisted, so the negative TTL only bounds staleness if a message is lost.
+ * <p>
+ * Entries only ever move from "not blacklisted" to "blacklisted": a Redis answer that arrives after
+ * the token was marked blacklisted (a lookup racing a logout) never replaces the positive entry.
+ */
+@Component
+public class TokenBlacklistCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBlacklistCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "token_blacklist_invalidation";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final LruCache<String, Decision> decisions;
+    private final long negativeTtlMs;
+
+    public TokenBlacklistCache(RedisTemplate<String, String> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${jwt.blacklist.near-cache.size:50000}") int maxSize,
+                               @Value("${jwt.blacklist.near-cache.negative-ttl-ms:60000}") long negativeTtlMs) {
+        this.redisTemplate = redisTemplate;
+        this.decisions = new LruCache<>(maxSize);
+        this.negativeTtlMs = negativeTtlMs;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Returns the cached decision for {@code digest}, or asks {@code remoteLookup} (Redis) and
+     * caches the answer. {@code tokenExpiresAt} is epoch millis, or 0 when unknown.
+     */
+    public boolean isBlacklisted(String digest, long tokenExpiresAt, BooleanSupplier remoteLookup) {
+        Boolean cached = peek(digest);
+        if (cached != null) {
+            return cached;
+        }
+        boolean blacklisted = remoteLookup.getAsBoolean();
+        record(digest, tokenExpiresAt, blacklisted);
+        return blacklisted;
+    }
+
+    /** Cached decision for {@code digest}, or null when there is none (or it went stale). */
+    public Boolean peek(String digest) {
+        Decision cached = decisions.get(digest);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.validUntil > System.currentTimeMillis()) {
+            return cached.blacklisted;
+        }
+        // Conditional, so a positive stored meanwhile survives
+        decisions.remove(digest, cached);
+        return null;
+    }
+
+    /** Caches an answer fetched from Redis, bounded as described on the class. */
+    public void record(String digest, long tokenExpiresAt, boolean blacklisted) {
+        long now = System.currentTimeMillis();
+        long validUntil = blacklisted
+                ? (tokenExpiresAt > 0 ? tokenExpiresAt : now + negativeTtlMs)
+                : Math.min(tokenExpiresAt > 0 ? tokenExpiresAt : Long.MAX_VALUE, now + negativeTtlMs);
+        decisions.merge(digest, new Decision(blacklisted, validUntil), TokenBlacklistCache::keepBlacklisted);
+    }
+
+    /** Records a freshly blacklisted token locally and tells the other nodes. */
+    public void markBlacklisted(String digest, long tokenExpiresAt) {
+        decisions.merge(digest, new Decision(true, tokenExpiresAt), TokenBlacklistCache::keepBlacklisted);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, digest + ":" + tokenExpiresAt);
+        } catch (Exception e) {
+            logger.warn("Could not publish blacklist invalidation; other nodes catch up within {} ms", negativeTtlMs, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            long expiresAt = Long.parseLong(body.substring(separator + 1));
+            decisions.merge(body.substring(0, separator), new Decision(true, expiresAt), TokenBlacklistCache::keepBlacklisted);
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed blacklist invalidation '{}'", body);
+        }
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    // A live "blacklisted" entry wins over anything that arrives later
+    private static Decision keepBlacklisted(Decision current, Decision incoming) {
+        if (current.blacklisted && current.validUntil > System.currentTimeMillis()) {
+            return incoming.blacklisted && incoming.validUntil > current.validUntil ? incoming : current;
+        }
+        return incoming;
+    }
+
+    private record Decision(boolean blacklisted, long validUntil) {
+    }
+}
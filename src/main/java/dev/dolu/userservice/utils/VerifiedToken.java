@@ -0,0 +1,39 @@
+package dev.dolu.userservice.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable result of a single signature check and claims decode.
+ * Produced by {@link JwtUtils#verify(String)} and safe to share between threads.
+ *
+ * @param jti        the {@code jti} claim, or null for tokens minted before it was added
+ * @param subject    token subject (the user's email)
+ * @param expiration expiry as epoch milliseconds
+ * @param user       the {@code user} claim, or an empty map when the token has none
+ * @param type       {@code user.type} (e.g. {@code MAGIC_LINK}), or null
+ * @param sessionId  the {@code sid} claim tying the token to a refresh session, or null
+ * @param tokenType  the {@code typ} claim ({@code access} / {@code refresh}), or null for older tokens
+ * @param issuedAt   the {@code iat} claim as epoch milliseconds, or 0 when absent
+ */
+public record VerifiedToken(String jti, String subject, long expiration, Map<String, Object> user, String type,
+                            String sessionId, String tokenType, long issuedAt) {
+
+    public VerifiedToken {
+        user = user == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(user));
+    }
+
+    public boolean isExpired() {
+        return expiration <= System.currentTimeMillis();
+    }
+
+    /** Milliseconds left before expiry; negative once expired. */
+    public long remainingMillis() {
+        return expiration - System.currentTimeMillis();
+    }
+
+    public boolean hasUserClaim() {
+        return !user.isEmpty();
+    }
+}
@@ -0,0 +1,3 @@
+-- Prefix index so OAuth2 username allocation can fetch every "<base>%" username in one range scan
+CREATE INDEX IF NOT EXISTS idx_qorelabs_users_username_prefix
+    ON qorelabs_users (username text_pattern_ops);
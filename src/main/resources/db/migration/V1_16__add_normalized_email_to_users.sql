@@ -0,0 +1,13 @@
+-- Stored lower(trim(email)) so every email lookup is a single probe on one unique index,
+-- whatever casing or padding the client sends.
+ALTER TABLE qorelabs_users ADD COLUMN IF NOT EXISTS email_normalized VARCHAR(255);
+
+UPDATE qorelabs_users
+SET email_normalized = lower(trim(email))
+WHERE email_normalized IS DISTINCT FROM lower(trim(email));
+
+-- Fails loudly if two accounts differ only by email casing; those must be merged by hand first.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_qorelabs_users_email_normalized
+    ON qorelabs_users (email_normalized);
+
+ALTER TABLE qorelabs_users ALTER COLUMN email_normalized SET NOT NULL;
@@ -0,0 +1,3 @@
+-- Keyset pagination over users orders by (created_at, id); rows from before created_at was populated sort first
+CREATE INDEX IF NOT EXISTS idx_qorelabs_users_created_at_id
+    ON qorelabs_users ((COALESCE(created_at, '-infinity'::timestamp)), id);
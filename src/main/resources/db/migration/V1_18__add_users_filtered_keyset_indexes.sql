@@ -0,0 +1,9 @@
+-- GraphQL getUsersByRole/City/Country page by (created_at, id) within one filter value
+CREATE INDEX IF NOT EXISTS idx_qorelabs_users_role_created_at_id
+    ON qorelabs_users (role, (COALESCE(created_at, '-infinity'::timestamp)), id);
+
+CREATE INDEX IF NOT EXISTS idx_qorelabs_users_city_created_at_id
+    ON qorelabs_users (city, (COALESCE(created_at, '-infinity'::timestamp)), id);
+
+CREATE INDEX IF NOT EXISTS idx_qorelabs_users_country_created_at_id
+    ON qorelabs_users (country, (COALESCE(created_at, '-infinity'::timestamp)), id);
@@ -0,0 +1,13 @@
+-- Fuzzy admin search (GraphQL searchUsers): one lower-cased search column kept current by Postgres
+-- on every write. Its trigram GIN index is built separately, without blocking writes (V1_21).
+--
+-- Deployment: adding a STORED generated column rewrites qorelabs_users under an ACCESS EXCLUSIVE lock,
+-- so reads and writes on users wait for the whole rewrite (roughly the time of a full-table copy).
+-- Run this migration in a low-traffic window on large tables.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE qorelabs_users ADD COLUMN IF NOT EXISTS search_text TEXT
+    GENERATED ALWAYS AS (
+        lower(coalesce(username, '') || ' ' || coalesce(email, '') || ' '
+              || coalesce(first_name, '') || ' ' || coalesce(last_name, ''))
+    ) STORED;
@@ -0,0 +1,84 @@
+-- Dashboard counters (countUsers, getUserCounts): one row per (dimension, value), maintained by a
+-- trigger in the same transaction as every user insert, delete and counted-column update.
+-- value is '' when the column is NULL. UserAggregateReconciler corrects any drift periodically.
+CREATE TABLE IF NOT EXISTS user_aggregate_counts (
+    dimension VARCHAR(32)  NOT NULL,
+    value     VARCHAR(255) NOT NULL,
+    count     BIGINT       NOT NULL,
+    PRIMARY KEY (dimension, value)
+);
+
+CREATE OR REPLACE FUNCTION bump_user_aggregate_count(p_dimension TEXT, p_value TEXT, p_delta BIGINT) RETURNS void AS $$
+BEGIN
+    INSERT INTO user_aggregate_counts (dimension, value, count)
+    VALUES (p_dimension, coalesce(p_value, ''), p_delta)
+    ON CONFLICT (dimension, value) DO UPDATE SET count = user_aggregate_counts.count + EXCLUDED.count;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION maintain_user_aggregate_counts() RETURNS trigger AS $$
+DECLARE
+    r     qorelabs_users;
+    delta BIGINT;
+BEGIN
+    IF TG_OP = 'INSERT' OR TG_OP = 'DELETE' THEN
+        IF TG_OP = 'INSERT' THEN
+            r := NEW;
+            delta := 1;
+        ELSE
+            r := OLD;
+            delta := -1;
+        END IF;
+        PERFORM bump_user_aggregate_count('total', '', delta);
+        PERFORM bump_user_aggregate_count('role', r.role, delta);
+        PERFORM bump_user_aggregate_count('city', r.city, delta);
+        PERFORM bump_user_aggregate_count('country', r.country, delta);
+        PERFORM bump_user_aggregate_count('auth_provider', r.auth_provider, delta);
+        PERFORM bump_user_aggregate_count('subscription', CASE WHEN r.subscription_active THEN 'active' ELSE 'inactive' END, delta);
+        RETURN NULL;
+    END IF;
+
+    IF OLD.role IS DISTINCT FROM NEW.role THEN
+        PERFORM bump_user_aggregate_count('role', OLD.role, -1);
+        PERFORM bump_user_aggregate_count('role', NEW.role, 1);
+    END IF;
+    IF OLD.city IS DISTINCT FROM NEW.city THEN
+        PERFORM bump_user_aggregate_count('city', OLD.city, -1);
+        PERFORM bump_user_aggregate_count('city', NEW.city, 1);
+    END IF;
+    IF OLD.country IS DISTINCT FROM NEW.country THEN
+        PERFORM bump_user_aggregate_count('country', OLD.country, -1);
+        PERFORM bump_user_aggregate_count('country', NEW.country, 1);
+    END IF;
+    IF OLD.auth_provider IS DISTINCT FROM NEW.auth_provider THEN
+        PERFORM bump_user_aggregate_count('auth_provider', OLD.auth_provider, -1);
+        PERFORM bump_user_aggregate_count('auth_provider', NEW.auth_provider, 1);
+    END IF;
+    IF OLD.subscription_active IS DISTINCT FROM NEW.subscription_active THEN
+        PERFORM bump_user_aggregate_count('subscription', CASE WHEN OLD.subscription_active THEN 'active' ELSE 'inactive' END, -1);
+        PERFORM bump_user_aggregate_count('subscription', CASE WHEN NEW.subscription_active THEN 'active' ELSE 'inactive' END, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- UPDATE OF skips the trigger for SQL that sets only other columns (the last-login flush, password-hash
+-- upgrades). Hibernate writes every column on each User save, so entity saves still fire it; the
+-- IS DISTINCT FROM checks then make it a no-op unless a counted column really changed.
+DROP TRIGGER IF EXISTS trg_qorelabs_users_aggregate_counts ON qorelabs_users;
+CREATE TRIGGER trg_qorelabs_users_aggregate_counts
+    AFTER INSERT OR DELETE OR UPDATE OF role, city, country, auth_provider, subscription_active
+    ON qorelabs_users
+    FOR EACH ROW EXECUTE FUNCTION maintain_user_aggregate_counts();
+
+-- Initial fill
+LOCK TABLE qorelabs_users IN SHARE MODE;
+DELETE FROM user_aggregate_counts;
+INSERT INTO user_aggregate_counts (dimension, value, count)
+SELECT 'total', '', count(*) FROM qorelabs_users
+UNION ALL SELECT 'role', coalesce(role, ''), count(*) FROM qorelabs_users GROUP BY 2
+UNION ALL SELECT 'city', coalesce(city, ''), count(*) FROM qorelabs_users GROUP BY 2
+UNION ALL SELECT 'country', coalesce(country, ''), count(*) FROM qorelabs_users GROUP BY 2
+UNION ALL SELECT 'auth_provider', coalesce(auth_provider, ''), count(*) FROM qorelabs_users GROUP BY 2
+UNION ALL SELECT 'subscription', CASE WHEN subscription_active THEN 'active' ELSE 'inactive' END, count(*)
+          FROM qorelabs_users GROUP BY 2;
@@ -0,0 +1,6 @@
+-- Trigram GIN index for searchUsers (substring LIKE and word similarity on search_text, see V1_19).
+-- Built CONCURRENTLY so user writes continue during the build; this cannot run inside a transaction,
+-- hence the separate migration (see the .conf next to it). If a build is interrupted, Postgres leaves
+-- an INVALID index that IF NOT EXISTS would skip: drop it by hand and re-run.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_qorelabs_users_search_text_trgm
+    ON qorelabs_users USING gin (search_text gin_trgm_ops);
@@ -0,0 +1,101 @@
+package dev.dolu.userservice;
+
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.VerificationTokenRepository;
+import dev.dolu.userservice.service.EmailService;
+import dev.dolu.userservice.utils.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * A client still holding an expired access token: permitAll endpoints keep working, protected ones
+ * answer 401.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ExpiredBearerTokenTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    private String expiredToken;
+
+    @BeforeEach
+    void setUp() {
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        when(emailService.sendVerificationEmail(anyString(), anyString())).thenReturn(true);
+
+        long expirationMs = (long) ReflectionTestUtils.getField(jwtUtils, "jwtExpirationMs");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", -60000L);
+        try {
+            expiredToken = jwtUtils.generateJwtToken(UUID.randomUUID(), "stale@example.com", "USER", "session-1");
+        } finally {
+            ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", expirationMs);
+        }
+    }
+
+    @Test
+    void expiredBearerDoesNotBlockRegistration() {
+        User user = new User();
+        user.setUsername("stale");
+        user.setEmail("stale@example.com");
+        user.setPassword("SecurePassword123!");
+
+        ResponseEntity<String> response = restTemplate.exchange("/api/users/register", HttpMethod.POST,
+                new HttpEntity<>(user, headers()), String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(userRepository.findByUsername("stale")).isNotNull();
+    }
+
+    @Test
+    void expiredBearerOnAProtectedEndpointIsUnauthorized() {
+        ResponseEntity<String> response = restTemplate.exchange("/api/users/user-details", HttpMethod.GET,
+                new HttpEntity<>(headers()), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(expiredToken);
+        String apiKey = System.getenv("SERVICE_PASSWORD");
+        if (apiKey != null) {
+            headers.set("X-API-KEY", apiKey);
+        }
+        return headers;
+    }
+}
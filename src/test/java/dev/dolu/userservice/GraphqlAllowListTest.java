@@ -0,0 +1,52 @@
+package dev.dolu.userservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.List;
+import java.util.Map;
+
+import static dev.dolu.userservice.GraphqlPersistedQueryTest.post;
+import static dev.dolu.userservice.GraphqlPersistedQueryTest.sha256Hex;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** With graphql.documents.allow-list-only, only the registered documents run, by hash or in full. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "graphql.documents.allow-list-only=true",
+        "graphql.documents.allow-list-location=classpath*:graphql-allow-list/*.graphql"
+})
+class GraphqlAllowListTest extends BaseIntegrationTest {
+
+    // Same text as src/test/resources/graphql-allow-list/countUsers.graphql
+    private static final String ALLOWED = "{ countUsers }";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void registeredDocumentRunsByHashWithoutARetry() throws Exception {
+        Map<String, Object> body = post(restTemplate, null, sha256Hex(ALLOWED)).getBody();
+
+        assertThat(body.get("errors")).isNull();
+        assertThat((Map<String, Object>) body.get("data")).containsKey("countUsers");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unregisteredDocumentIsRejectedEvenInFull() throws Exception {
+        Map<String, Object> body = post(restTemplate, "{ countUsers __typename }", null).getBody();
+
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) body.get("errors");
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).get("message")).isEqualTo("PersistedQueryNotAllowed");
+        assertThat(body.get("data")).isNull();
+    }
+}
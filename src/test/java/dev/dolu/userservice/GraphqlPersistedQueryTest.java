@@ -0,0 +1,92 @@
+package dev.dolu.userservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Automatic persisted queries over HTTP: a hash-only request for an unknown document asks for the
+ * text, the full request registers it, and the hash alone works from then on.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class GraphqlPersistedQueryTest extends BaseIntegrationTest {
+
+    static final String QUERY = "query PersistedCount { countUsers }";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hashOnlyRequestIsServedOnceTheFullTextWasSent() throws Exception {
+        String hash = sha256Hex(QUERY);
+
+        Map<String, Object> unknown = post(restTemplate, null, hash).getBody();
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) unknown.get("errors");
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).get("message")).isEqualTo("PersistedQueryNotFound");
+        assertThat(unknown.get("data")).isNull();
+
+        Map<String, Object> registered = post(restTemplate, QUERY, hash).getBody();
+        assertThat(registered.get("errors")).isNull();
+        assertThat((Map<String, Object>) registered.get("data")).containsKey("countUsers");
+
+        Map<String, Object> hit = post(restTemplate, null, hash).getBody();
+        assertThat(hit.get("errors")).isNull();
+        assertThat((Map<String, Object>) hit.get("data")).containsKey("countUsers");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void textNotMatchingItsHashIsRejected() throws Exception {
+        Map<String, Object> body = post(restTemplate, QUERY, sha256Hex("{ countUsers }")).getBody();
+
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) body.get("errors");
+        assertThat(errors.get(0).get("message")).isEqualTo("PersistedQueryIdInvalid");
+    }
+
+    @SuppressWarnings("rawtypes")
+    static ResponseEntity<Map> post(TestRestTemplate restTemplate, String query, String hash) {
+        Map<String, Object> body = new HashMap<>();
+        if (query != null) {
+            body.put("query", query);
+        }
+        if (hash != null) {
+            body.put("extensions", Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        String apiKey = System.getenv("SERVICE_PASSWORD");
+        if (apiKey != null) {
+            headers.set("X-API-KEY", apiKey);
+        }
+        ResponseEntity<Map> response = restTemplate.postForEntity("/graphql", new HttpEntity<>(body, headers), Map.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        return response;
+    }
+
+    static String sha256Hex(String text) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash);
+    }
+}
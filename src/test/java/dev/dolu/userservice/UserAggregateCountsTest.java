@@ -0,0 +1,120 @@
+package dev.dolu.userservice;
+
+import dev.dolu.userservice.controller.GraphqlController;
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserCount;
+import dev.dolu.userservice.models.UserCountDimension;
+import dev.dolu.userservice.repository.UserAggregateRepository;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.VerificationTokenRepository;
+import dev.dolu.userservice.service.EmailService;
+import dev.dolu.userservice.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * The trigger-maintained counters behind countUsers / getUserCounts, and the reconciler that
+ * repairs them.
+ */
+class UserAggregateCountsTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private UserAggregateRepository userAggregateRepository;
+
+    @Autowired
+    private GraphqlController graphqlController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void clearUsers() {
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        userAggregateRepository.reconcile();
+        when(emailService.sendVerificationEmail(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void countersFollowRegistrationRoleChangeAndDeletion() {
+        User ada = register("ada", "Lagos");
+        register("grace", "Lagos");
+        register("linus", "Helsinki");
+
+        assertThat(graphqlController.countUsers()).isEqualTo(3);
+        assertThat(graphqlController.getUserCounts(UserCountDimension.CITY))
+                .containsExactly(new UserCount("Lagos", 2), new UserCount("Helsinki", 1));
+        assertThat(graphqlController.getUserCounts(UserCountDimension.ROLE))
+                .containsExactly(new UserCount("USER", 3));
+
+        User managed = userRepository.findById(ada.getId()).orElseThrow();
+        managed.setRole(Role.ADMIN);
+        userRepository.save(managed);
+
+        assertThat(graphqlController.getUserCounts(UserCountDimension.ROLE))
+                .containsExactly(new UserCount("USER", 2), new UserCount("ADMIN", 1));
+
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteById(ada.getId());
+
+        assertThat(graphqlController.countUsers()).isEqualTo(2);
+        assertThat(graphqlController.getUserCounts(UserCountDimension.CITY))
+                .containsExactlyInAnyOrder(new UserCount("Lagos", 1), new UserCount("Helsinki", 1));
+        assertThat(graphqlController.getUserCounts(UserCountDimension.ROLE))
+                .containsExactly(new UserCount("USER", 2));
+        assertThat(userAggregateRepository.reconcile()).isZero();
+    }
+
+    @Test
+    void reconcileCorrectsInjectedDrift() {
+        register("ada", "Lagos");
+        register("grace", "Helsinki");
+
+        jdbcTemplate.update("UPDATE user_aggregate_counts SET count = count + 5 WHERE dimension = 'total'");
+        jdbcTemplate.update("DELETE FROM user_aggregate_counts WHERE dimension = 'city' AND value = 'Lagos'");
+        jdbcTemplate.update("INSERT INTO user_aggregate_counts (dimension, value, count) VALUES ('city', 'Atlantis', 4)");
+
+        long drifted = userAggregateRepository.reconcile();
+
+        assertThat(drifted).isEqualTo(3);
+        assertThat(graphqlController.countUsers()).isEqualTo(2);
+        List<UserCount> cities = graphqlController.getUserCounts(UserCountDimension.CITY);
+        assertThat(cities).containsExactlyInAnyOrder(new UserCount("Lagos", 1), new UserCount("Helsinki", 1));
+        assertThat(userAggregateRepository.reconcile()).isZero();
+    }
+
+    private User register(String name, String city) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("Password123");
+        user.setCity(city);
+        return (User) userService.registerUser(user).get("user");
+    }
+}
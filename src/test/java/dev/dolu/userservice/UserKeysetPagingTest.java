@@ -0,0 +1,129 @@
+package dev.dolu.userservice;
+
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserConnection;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.UserSelectionRepository;
+import dev.dolu.userservice.repository.VerificationTokenRepository;
+import dev.dolu.userservice.utils.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyset paging over {@code (COALESCE(created_at, '-infinity'), id)} as used by the GraphQL user
+ * connections: page boundaries, both directions, rows without a creation time, and filters.
+ */
+class UserKeysetPagingTest extends BaseIntegrationTest {
+
+    private static final List<String> FIELDS = List.of("username");
+
+    @Autowired
+    private UserSelectionRepository userSelectionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void setUpUsers() {
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        save("undated", "Lagos", null);
+        save("jan01", "Lagos", "2024-01-01 09:00:00");
+        save("jan02", "Helsinki", "2024-01-02 09:00:00");
+        save("jan03", "Lagos", "2024-01-03 09:00:00.250000");
+        save("jan04", "Helsinki", "2024-01-04 09:00:00");
+    }
+
+    @Test
+    void oldestFirstWalksEveryPageOnce() {
+        UserConnection first = page(null, null, false, 2);
+        assertThat(usernames(first)).containsExactly("undated", "jan01");
+        assertThat(first.pageInfo().hasNextPage()).isTrue();
+        assertThat(first.pageInfo().hasPreviousPage()).isFalse();
+
+        UserConnection second = page(null, first.pageInfo().endCursor(), false, 2);
+        assertThat(usernames(second)).containsExactly("jan02", "jan03");
+        assertThat(second.pageInfo().hasNextPage()).isTrue();
+        assertThat(second.pageInfo().hasPreviousPage()).isTrue();
+
+        UserConnection last = page(null, second.pageInfo().endCursor(), false, 2);
+        assertThat(usernames(last)).containsExactly("jan04");
+        assertThat(last.pageInfo().hasNextPage()).isFalse();
+    }
+
+    @Test
+    void newestFirstPutsUndatedRowsLast() {
+        List<String> seen = new ArrayList<>();
+        String after = null;
+        UserConnection page;
+        do {
+            page = page(null, after, true, 2);
+            seen.addAll(usernames(page));
+            after = page.pageInfo().endCursor();
+        } while (page.pageInfo().hasNextPage());
+
+        assertThat(seen).containsExactly("jan04", "jan03", "jan02", "jan01", "undated");
+    }
+
+    @Test
+    void filterIsAppliedOnEveryPage() {
+        UserConnection first = page("Lagos", null, false, 2);
+        assertThat(usernames(first)).containsExactly("undated", "jan01");
+
+        UserConnection second = page("Lagos", first.pageInfo().endCursor(), false, 2);
+        assertThat(usernames(second)).containsExactly("jan03");
+        assertThat(second.pageInfo().hasNextPage()).isFalse();
+
+        UserConnection recent = page("Helsinki", null, true, 10);
+        assertThat(usernames(recent)).containsExactly("jan04", "jan02");
+    }
+
+    @Test
+    void cursorsCarryTheUndatedSortKey() {
+        UserConnection first = page(null, null, false, 1);
+
+        assertThat(KeysetCursor.decodeTimestamp(first.pageInfo().endCursor()).sortKey()).isEqualTo("-infinity");
+        assertThat(usernames(page(null, first.pageInfo().endCursor(), false, 1))).containsExactly("jan01");
+    }
+
+    private UserConnection page(String city, String after, boolean newestFirst, int limit) {
+        KeysetCursor cursor = after != null ? KeysetCursor.decodeTimestamp(after) : null;
+        return city == null
+                ? userSelectionRepository.selectPage(FIELDS, null, List.of(), cursor, newestFirst, limit)
+                : userSelectionRepository.selectPage(FIELDS, "u.city = ?", List.of(city), cursor, newestFirst, limit);
+    }
+
+    private static List<String> usernames(UserConnection connection) {
+        return connection.edges().stream().map(edge -> edge.node().getUsername()).toList();
+    }
+
+    private void save(String username, String city, String createdAt) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("hashed");
+        user.setCity(city);
+        user.setRole(Role.USER);
+        User saved = userRepository.saveAndFlush(user);
+        jdbcTemplate.update("UPDATE qorelabs_users SET created_at = CAST(? AS timestamp) WHERE id = ?", createdAt, saved.getId());
+    }
+}
@@ -0,0 +1,121 @@
+package dev.dolu.userservice;
+
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.VerificationTokenRepository;
+import dev.dolu.userservice.utils.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserListingEndpointTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void setUpUsers() {
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        for (String name : List.of("ada", "grace", "linus")) {
+            User user = new User();
+            user.setUsername(name);
+            user.setEmail(name + "@example.com");
+            user.setPassword("hashed");
+            user.setEnabled(true);
+            user.setRole(Role.USER);
+            userRepository.save(user);
+        }
+    }
+
+    @Test
+    void withoutPagingParametersReturnsEveryUserAsAnArray() {
+        ResponseEntity<List> response = get("/api/users/all", MediaType.APPLICATION_JSON, List.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(response.getBody()).hasSize(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void limitAndCursorWalkTheUsersPageByPage() {
+        ResponseEntity<Map> first = get("/api/users/all?limit=2", MediaType.APPLICATION_JSON, Map.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<Map<String, Object>> firstUsers = (List<Map<String, Object>>) first.getBody().get("users");
+        String cursor = (String) first.getBody().get("nextCursor");
+        assertThat(firstUsers).hasSize(2);
+        assertThat(cursor).isNotBlank();
+
+        ResponseEntity<Map> second = get("/api/users/all?limit=2&cursor=" + cursor, MediaType.APPLICATION_JSON, Map.class);
+
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<Map<String, Object>> secondUsers = (List<Map<String, Object>>) second.getBody().get("users");
+        assertThat(secondUsers).hasSize(1);
+        assertThat(second.getBody().get("nextCursor")).isNull();
+
+        List<Object> ids = new ArrayList<>();
+        firstUsers.forEach(user -> ids.add(user.get("id")));
+        secondUsers.forEach(user -> ids.add(user.get("id")));
+        assertThat(ids).doesNotHaveDuplicates().hasSize(3);
+    }
+
+    @Test
+    void cursorWithAGarbageSortKeyIsABadRequest() {
+        String cursor = new KeysetCursor("not-a-timestamp", UUID.randomUUID()).encode();
+
+        ResponseEntity<Map> response = get("/api/users/all?limit=2&cursor=" + cursor, MediaType.APPLICATION_JSON, Map.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void ndjsonStreamsOneUserPerLine() {
+        ResponseEntity<String> response = get("/api/users/all", MediaType.parseMediaType("application/x-ndjson"), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        String[] lines = response.getBody().strip().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines).allMatch(line -> line.startsWith("{") && line.contains("\"email\""));
+    }
+
+    private <T> ResponseEntity<T> get(String path, MediaType accept, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(accept));
+        String apiKey = System.getenv("SERVICE_PASSWORD");
+        if (apiKey != null) {
+            headers.set("X-API-KEY", apiKey);
+        }
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), type);
+    }
+}
@@ -0,0 +1,104 @@
+package dev.dolu.userservice;
+
+import dev.dolu.userservice.models.Role;
+import dev.dolu.userservice.models.User;
+import dev.dolu.userservice.models.UserConnection;
+import dev.dolu.userservice.repository.UserRepository;
+import dev.dolu.userservice.repository.UserSelectionRepository;
+import dev.dolu.userservice.repository.VerificationTokenRepository;
+import dev.dolu.userservice.utils.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** searchUsers: trigram matching, best match first, and continuation by (rank, id) cursors. */
+class UserSearchPagingTest extends BaseIntegrationTest {
+
+    private static final List<String> FIELDS = List.of("username");
+
+    @Autowired
+    private UserSelectionRepository userSelectionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void setUpUsers() {
+        verificationTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        save("alex", "Alex", "Stone");
+        save("alexander", "Alexander", "Grey");
+        save("alexandra", "Sandra", "Alexandrova");
+        save("malexis", "Lexi", "Mal");
+        save("bob", "Bob", "Builder");
+    }
+
+    @Test
+    void exactWordRanksFirstAndNonMatchesAreLeftOut() {
+        List<String> found = usernames(search("Alex", null, 10));
+
+        assertThat(found.get(0)).isEqualTo("alex");
+        assertThat(found).contains("alexander", "alexandra", "malexis").doesNotContain("bob");
+    }
+
+    @Test
+    void typoStillMatchesByWordSimilarity() {
+        // Not a substring of "alexander", so only the trigram similarity can find it
+        assertThat(usernames(search("alexandr", null, 10))).contains("alexander");
+    }
+
+    @Test
+    void continuationReturnsTheSameOrderAsOnePage() {
+        List<String> onePage = usernames(search("alex", null, 10));
+
+        List<String> walked = new ArrayList<>();
+        String after = null;
+        UserConnection page;
+        do {
+            page = search("alex", after, 1);
+            walked.addAll(usernames(page));
+            after = page.pageInfo().endCursor();
+            assertThat(page.pageInfo().hasPreviousPage()).isEqualTo(walked.size() > 1);
+        } while (page.pageInfo().hasNextPage());
+
+        assertThat(walked).isEqualTo(onePage).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void blankQueryFindsNothing() {
+        assertThat(search("   ", null, 10).edges()).isEmpty();
+    }
+
+    private UserConnection search(String query, String after, int limit) {
+        KeysetCursor cursor = after != null ? KeysetCursor.decodeRank(after) : null;
+        return userSelectionRepository.searchPage(FIELDS, query, cursor, limit);
+    }
+
+    private static List<String> usernames(UserConnection connection) {
+        return connection.edges().stream().map(edge -> edge.node().getUsername()).toList();
+    }
+
+    private void save(String username, String firstName, String lastName) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setPassword("hashed");
+        user.setRole(Role.USER);
+        userRepository.saveAndFlush(user);
+    }
+}
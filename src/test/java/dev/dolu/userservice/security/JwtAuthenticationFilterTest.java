@@ -0,0 +1,139 @@
+package dev.dolu.userservice.security;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import dev.dolu.userservice.utils.JwtUtils;
+import dev.dolu.userservice.utils.TokenBlacklistCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+    @InjectMocks
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private TokenBlacklistCache tokenBlacklistCache;
+    @Mock
+    private UserStatusCache userStatusCache;
+    @Mock
+    private CustomMetricService customMetricService;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "testSecretKey1234567890abcdefghijklmnopqrstuvwxyz");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3600000L);
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpirationMs", 7200000L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(userStatusCache.isEnabled()).thenReturn(false);
+        filter = new JwtAuthenticationFilter(jwtUtils, userStatusCache, customMetricService);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenAuthenticatesWithItsRole() throws Exception {
+        String access = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "ADMIN", "session-1");
+
+        MockHttpServletResponse response = filter(access, "/api/users/user-details");
+
+        assertEquals(200, response.getStatus());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority())));
+    }
+
+    @Test
+    void refreshTokenIsRejectedAsBearer() throws Exception {
+        String refresh = jwtUtils.generateRefreshToken(UUID.randomUUID(), "test@example.com", "ADMIN", "session-1");
+
+        assertContinuesUnauthenticated(refresh, "/api/users/user-details");
+    }
+
+    @Test
+    void magicLinkTokenIsRejectedAsBearer() throws Exception {
+        String magic = jwtUtils.generateMagicLinkToken(UUID.randomUUID(), "test@example.com", "USER");
+
+        assertContinuesUnauthenticated(magic, "/api/users/user-details");
+    }
+
+    @Test
+    void blacklistedTokenContinuesUnauthenticated() throws Exception {
+        String access = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "USER", "session-1");
+        when(tokenBlacklistCache.isBlacklisted(anyString(), anyLong(), any())).thenReturn(true);
+
+        assertContinuesUnauthenticated(access, "/api/users/user-details");
+    }
+
+    @Test
+    void expiredTokenContinuesUnauthenticated() throws Exception {
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", -60000L);
+        String expired = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "USER", "session-1");
+
+        assertContinuesUnauthenticated(expired, "/api/users/forgot-password");
+        verify(customMetricService).incrementJwtValidationFailureCounter();
+    }
+
+    @Test
+    void bearerOnGraphqlIsAuthenticated() throws Exception {
+        String access = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "ADMIN", "session-1");
+
+        assertEquals(200, filter(access, "/graphql").getStatus());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority())));
+    }
+
+    // The API-key authentication set before the filter is dropped, and the chain still runs
+    private void assertContinuesUnauthenticated(String token, String path) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("api-client", null, Collections.emptyList()));
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = filter(token, path, chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private MockHttpServletResponse filter(String token, String path) throws Exception {
+        return filter(token, path, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse filter(String token, String path, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRequestURI(path);
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
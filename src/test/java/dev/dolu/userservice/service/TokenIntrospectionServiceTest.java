@@ -0,0 +1,68 @@
+package dev.dolu.userservice.service;
+
+import dev.dolu.userservice.utils.JwtUtils;
+import dev.dolu.userservice.utils.TokenBlacklistCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenIntrospectionServiceTest {
+    @InjectMocks
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private TokenBlacklistCache tokenBlacklistCache;
+
+    private TokenIntrospectionService introspectionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "testSecretKey1234567890abcdefghijklmnopqrstuvwxyz");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3600000L);
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpirationMs", 7200000L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(null);
+        introspectionService = new TokenIntrospectionService(jwtUtils, 500, 2000, 100);
+    }
+
+    @Test
+    void accessTokenIsActive() {
+        String access = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "USER", "session-1");
+
+        Map<String, Object> result = introspectionService.introspect(List.of(access)).get(0);
+
+        assertEquals(true, result.get("active"));
+        assertEquals("test@example.com", result.get("sub"));
+    }
+
+    @Test
+    void magicLinkTokenIsInactive() {
+        String magic = jwtUtils.generateMagicLinkToken(UUID.randomUUID(), "test@example.com", "USER");
+
+        assertEquals(Map.of("active", false), introspectionService.introspect(List.of(magic)).get(0));
+    }
+
+    @Test
+    void refreshTokenIsInactive() {
+        String refresh = jwtUtils.generateRefreshToken(UUID.randomUUID(), "test@example.com", "USER", "session-1");
+
+        assertEquals(Map.of("active", false), introspectionService.introspect(List.of(refresh)).get(0));
+    }
+}
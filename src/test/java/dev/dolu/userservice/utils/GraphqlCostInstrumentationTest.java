@@ -0,0 +1,76 @@
+package dev.dolu.userservice.utils;
+
+import dev.dolu.userservice.metrics.CustomMetricService;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+class GraphqlCostInstrumentationTest {
+
+    private static final String SCHEMA = "type Query { countUsers: Int }";
+
+    @Mock
+    private CustomMetricService customMetricService;
+
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("graphql.cost.budget.anonymous", "5")
+                .withProperty("graphql.cost.budget.admin", "100");
+        GraphqlCostInstrumentation instrumentation =
+                new GraphqlCostInstrumentation(customMetricService, environment, 8, 10, 5, 10, 100);
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SCHEMA),
+                RuntimeWiring.newRuntimeWiring()
+                        .type("Query", type -> type.dataFetcher("countUsers", env -> 1))
+                        .build());
+        graphQL = GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousCallerIsHeldToTheAnonymousBudget() {
+        ExecutionResult result = graphQL.execute("{ countUsers }");
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().contains("exceeds the budget of 5"));
+        verify(customMetricService).recordGraphqlQueryCost(eq("anonymous"), eq(true), anyLong());
+    }
+
+    @Test
+    void adminTokenGetsTheAdminBudget() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin@example.com", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+
+        ExecutionResult result = graphQL.execute("{ countUsers }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertNotNull(result.getData());
+        verify(customMetricService).recordGraphqlQueryCost(eq("admin"), eq(false), eq(10L));
+    }
+}
@@ -5,9 +5,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -22,6 +25,8 @@ class JwtUtilsTest {
     private RedisTemplate<String, String> redisTemplate;
     @Mock
     private ValueOperations<String, String> valueOperations;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
 
     private String secret = "testSecretKey1234567890abcdefghijklmnopqrstuvwxyz"; // Longer key for HS512
     private long expirationMs = 3600000; // 1 hour
@@ -92,4 +97,143 @@ class JwtUtilsTest {
         String parsedEmail = jwtUtils.getUsernameFromJwtToken(token);
         assertEquals(email, parsedEmail);
     }
+
+    @Test
+    void testVerifyReturnsCachedResultForSameToken() {
+        UUID userId = UUID.randomUUID();
+        String token = jwtUtils.generateJwtToken(userId, "test@example.com", "LANDLORD");
+
+        VerifiedToken first = jwtUtils.verify(token);
+        VerifiedToken second = jwtUtils.verify(token);
+
+        assertSame(first, second);
+        assertEquals("test@example.com", first.subject());
+        assertEquals(userId.toString(), first.user().get("id"));
+        assertTrue(first.remainingMillis() > 0);
+        assertThrows(UnsupportedOperationException.class, () -> first.user().put("role", "ADMIN"));
+    }
+
+    @Test
+    void testVerifyRejectsTamperedAndExpiredTokens() {
+        String token = jwtUtils.generateJwtToken("test@example.com");
+        jwtUtils.verify(token);
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtUtils.verify(token + "invalid"));
+        assertThrows(IllegalArgumentException.class, () -> jwtUtils.verify(null));
+
+        jwtUtils.setJwtExpirationMs(-1000);
+        String expired = jwtUtils.generateJwtToken("test@example.com");
+        assertThrows(io.jsonwebtoken.ExpiredJwtException.class, () -> jwtUtils.verify(expired));
+        assertFalse(jwtUtils.validateJwtToken(expired));
+    }
+
+    @Test
+    void testMagicLinkTokenType() {
+        String magic = jwtUtils.generateMagicLinkToken(UUID.randomUUID(), "test@example.com", "TENANT");
+        String regular = jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "TENANT");
+        assertTrue(jwtUtils.isMagicLinkToken(magic));
+        assertFalse(jwtUtils.isMagicLinkToken(regular));
+        assertNull(jwtUtils.getUserDetailsFromJwtToken(jwtUtils.generateJwtToken("test@example.com")));
+    }
+
+    @Test
+    void testRevocationIdIsDigestOfJti() {
+        String token = jwtUtils.generateJwtToken("test@example.com");
+        VerifiedToken verified = jwtUtils.verify(token);
+        assertNotNull(verified.jti());
+        assertNotEquals(verified.jti(), jwtUtils.verify(jwtUtils.generateJwtToken("test@example.com")).jti());
+
+        String revocationId = JwtUtils.revocationId(token, verified);
+        assertEquals(JwtUtils.digest(verified.jti()), revocationId);
+        assertEquals(43, revocationId.length());
+        // Legacy tokens without a jti fall back to the digest of the whole token
+        assertEquals(JwtUtils.digest(token), JwtUtils.revocationId(token, null));
+    }
+
+    @Test
+    void testSessionIdClaimOnSessionBoundTokens() {
+        String refreshToken = jwtUtils.generateRefreshToken("test@example.com", "session-1");
+        String accessToken = jwtUtils.generateJwtToken("test@example.com", "session-1");
+        assertEquals("session-1", jwtUtils.verify(refreshToken).sessionId());
+        assertEquals("session-1", jwtUtils.verify(accessToken).sessionId());
+        assertNull(jwtUtils.verify(jwtUtils.generateRefreshToken("test@example.com")).sessionId());
+    }
+
+    @Test
+    void testAccessAndRefreshTokensAreTyped() {
+        VerifiedToken access = jwtUtils.verify(jwtUtils.generateJwtToken(UUID.randomUUID(), "test@example.com", "USER", "session-1"));
+        VerifiedToken refresh = jwtUtils.verify(jwtUtils.generateRefreshToken(UUID.randomUUID(), "test@example.com", "USER", "session-1"));
+        VerifiedToken magic = jwtUtils.verify(jwtUtils.generateMagicLinkToken(UUID.randomUUID(), "test@example.com", "USER"));
+
+        assertTrue(jwtUtils.isAccessToken(access));
+        assertFalse(jwtUtils.isRefreshToken(access));
+        assertTrue(jwtUtils.isRefreshToken(refresh));
+        assertFalse(jwtUtils.isAccessToken(refresh));
+        assertFalse(jwtUtils.isAccessToken(magic));
+        assertFalse(jwtUtils.isRefreshToken(magic));
+    }
+
+    @Test
+    void testEs256SigningWithKeyIdAndLegacyHmacFallback() {
+        String legacy = jwtUtils.generateJwtToken("legacy@example.com");
+
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        JwtKeyRing keyRing = new JwtKeyRing(redisTemplate, "ES256", 720, refreshExpirationMs, true, "test-key-encryption-key", 5000);
+        keyRing.init();
+        ReflectionTestUtils.setField(jwtUtils, "keyRing", keyRing);
+
+        String token = jwtUtils.generateJwtToken("test@example.com");
+        String header = new String(java.util.Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        assertTrue(header.contains("\"ES256\""));
+        assertTrue(header.contains(keyRing.current().kid()));
+        assertEquals("test@example.com", jwtUtils.getUsernameFromJwtToken(token));
+        // Tokens issued with the shared secret before the switch still verify
+        assertEquals("legacy@example.com", jwtUtils.getUsernameFromJwtToken(legacy));
+
+        List<?> jwks = (List<?>) keyRing.jwks().get("keys");
+        assertEquals(1, jwks.size());
+        assertEquals("EC", ((Map<?, ?>) jwks.get(0)).get("kty"));
+    }
+
+    @Test
+    void testSigningKeysAreStoredEncryptedAndReadBack() {
+        Map<Object, Object> stored = new java.util.HashMap<>();
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        when(hashOperations.putIfAbsent(eq(JwtKeyRing.KEYS_HASH), anyString(), anyString())).thenAnswer(invocation -> {
+            stored.put(invocation.getArgument(1), invocation.getArgument(2));
+            return true;
+        });
+        when(hashOperations.entries(JwtKeyRing.KEYS_HASH)).thenAnswer(invocation -> new java.util.HashMap<>(stored));
+
+        JwtKeyRing writer = new JwtKeyRing(redisTemplate, "ES256", 720, refreshExpirationMs, true, "test-key-encryption-key", 5000);
+        writer.init();
+        JwtKeyRing.SigningKey key = writer.current();
+        String value = (String) stored.get(key.kid());
+        String plainPrivateKey = java.util.Base64.getEncoder().encodeToString(key.keyPair().getPrivate().getEncoded());
+        assertFalse(value.contains(plainPrivateKey));
+
+        JwtKeyRing reader = new JwtKeyRing(redisTemplate, "ES256", 720, refreshExpirationMs, true, "test-key-encryption-key", 5000);
+        reader.init();
+        assertEquals(key.keyPair().getPrivate(), reader.current().keyPair().getPrivate());
+
+        // A node with a different encryption key cannot use the stored private key
+        JwtKeyRing wrongKey = new JwtKeyRing(redisTemplate, "ES256", 720, refreshExpirationMs, true, "another-key", 5000);
+        wrongKey.init();
+        assertNotEquals(key.kid(), wrongKey.current().kid());
+    }
+
+    @Test
+    void testUnknownKeyIdReloadsAtMostOncePerInterval() {
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        JwtKeyRing keyRing = new JwtKeyRing(redisTemplate, "ES256", 720, refreshExpirationMs, true, "test-key-encryption-key", 60000);
+        keyRing.init();
+        // Pretend the startup load was long ago
+        ((java.util.concurrent.atomic.AtomicLong) ReflectionTestUtils.getField(keyRing, "lastReloadAt")).set(0);
+        clearInvocations(hashOperations);
+
+        assertNull(keyRing.publicKey("unknown-1"));
+        assertNull(keyRing.publicKey("unknown-2"));
+        assertNull(keyRing.publicKey("unknown-3"));
+
+        verify(hashOperations, times(1)).entries(JwtKeyRing.KEYS_HASH);
+    }
 }
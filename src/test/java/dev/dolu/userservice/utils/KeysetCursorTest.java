@@ -0,0 +1,45 @@
+package dev.dolu.userservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    private final UUID id = UUID.randomUUID();
+
+    @Test
+    void timestampCursorsRoundTrip() {
+        for (String sortKey : new String[]{"2024-05-01 12:30:00", "2024-05-01 12:30:00.123456", "-infinity"}) {
+            KeysetCursor cursor = new KeysetCursor(sortKey, id);
+            assertEquals(cursor, KeysetCursor.decodeTimestamp(cursor.encode()));
+        }
+    }
+
+    @Test
+    void timestampCursorWithGarbageSortKeyIsRejected() {
+        for (String sortKey : new String[]{"'; DROP TABLE users; --", "2024-13-45 99:00:00", "0.5", ""}) {
+            String encoded = new KeysetCursor(sortKey, id).encode();
+            assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decodeTimestamp(encoded), sortKey);
+        }
+    }
+
+    @Test
+    void rankCursorsAcceptOnlyScoresBetweenZeroAndOne() {
+        assertEquals("0.4375", KeysetCursor.decodeRank(new KeysetCursor("0.4375", id).encode()).sortKey());
+        assertEquals("1", KeysetCursor.decodeRank(new KeysetCursor("1", id).encode()).sortKey());
+        for (String sortKey : new String[]{"NaN", "2", "-0.1", "2024-05-01 12:30:00", "abc"}) {
+            String encoded = new KeysetCursor(sortKey, id).encode();
+            assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decodeRank(encoded), sortKey);
+        }
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decodeTimestamp(
+                java.util.Base64.getUrlEncoder().encodeToString("no-separator".getBytes())));
+    }
+}
@@ -0,0 +1,48 @@
+package dev.dolu.userservice.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBlacklistCacheTest {
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private TokenBlacklistCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new TokenBlacklistCache(redisTemplate, listenerContainer, 100, 60000);
+    }
+
+    @Test
+    void lateNegativeAnswerDoesNotUnblacklistToken() {
+        long expiresAt = System.currentTimeMillis() + 60000;
+
+        // A lookup read "not blacklisted" from Redis, then a logout blacklisted the token before the lookup recorded it
+        cache.markBlacklisted("digest", expiresAt);
+        cache.record("digest", expiresAt, false);
+
+        assertTrue(cache.peek("digest"));
+        assertTrue(cache.isBlacklisted("digest", expiresAt, () -> false));
+    }
+
+    @Test
+    void negativeAnswerIsReplacedByBlacklisting() {
+        long expiresAt = System.currentTimeMillis() + 60000;
+
+        cache.record("digest", expiresAt, false);
+        assertFalse(cache.peek("digest"));
+
+        cache.markBlacklisted("digest", expiresAt);
+        assertTrue(cache.peek("digest"));
+    }
+}